@@ -0,0 +1,140 @@
+package com.yojana.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.yojana.helpers.PackedHoursHelper;
+import com.yojana.model.timesheet.TimesheetRow;
+
+/**
+ * PackedHoursHelper against the per-day loops TimesheetRow used before it,
+ * over a batch of raw packed weeks with random hours. The loop versions are
+ * kept here as they were so the two can be compared on the same JVM.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PackedHoursBenchmark {
+
+	private static final int ROWS = 1024;
+
+	private static final long BYTE_BASE = 256;
+
+	private static final long[] MASK = { 0xFFL, 0xFF00L, 0xFF0000L, 0xFF000000L, 0xFF00000000L, 0xFF0000000000L,
+			0xFF000000000000L };
+
+	private long[] weeks;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(4911L);
+		weeks = new long[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			long packed = 0;
+			for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+				packed = PackedHoursHelper.setDecihour(packed, d, random.nextInt(121));
+			}
+			weeks[i] = packed;
+		}
+	}
+
+	@Benchmark
+	public void sumLoop(Blackhole bh) {
+		for (long packed: weeks) {
+			int[] charges = new int[TimesheetRow.LAST_DAY + 1];
+			long check = packed;
+			for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+				charges[d] = (int) (check % BYTE_BASE);
+				check /= BYTE_BASE;
+			}
+			int sum = 0;
+			for (int charge: charges) {
+				sum += charge;
+			}
+			bh.consume(sum);
+		}
+	}
+
+	@Benchmark
+	public void sumSwar(Blackhole bh) {
+		for (long packed: weeks) {
+			bh.consume(PackedHoursHelper.sum(packed));
+		}
+	}
+
+	@Benchmark
+	public void getDecihourMask(Blackhole bh) {
+		for (long packed: weeks) {
+			for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+				bh.consume((int) ((packed & MASK[d]) >> d * Byte.SIZE));
+			}
+		}
+	}
+
+	@Benchmark
+	public void getDecihourShift(Blackhole bh) {
+		for (long packed: weeks) {
+			for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+				bh.consume(PackedHoursHelper.getDecihour(packed, d));
+			}
+		}
+	}
+
+	@Benchmark
+	public void addLoop(Blackhole bh) {
+		long total = 0;
+		for (long packed: weeks) {
+			long result = 0;
+			for (int d = TimesheetRow.LAST_DAY; d >= TimesheetRow.FIRST_DAY; d--) {
+				int sum = (int) ((total & MASK[d]) >> d * Byte.SIZE) + (int) ((packed & MASK[d]) >> d * Byte.SIZE);
+				result = result * BYTE_BASE + Math.min(sum, TimesheetRow.DECIHOURS_IN_DAY);
+			}
+			total = result;
+		}
+		bh.consume(total);
+	}
+
+	@Benchmark
+	public void addSwar(Blackhole bh) {
+		long total = 0;
+		for (long packed: weeks) {
+			total = PackedHoursHelper.add(total, packed);
+		}
+		bh.consume(total);
+	}
+
+	@Benchmark
+	public void validateLoop(Blackhole bh) {
+		for (long packed: weeks) {
+			boolean valid = packed >= 0;
+			long check = packed;
+			for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+				valid &= check % BYTE_BASE <= TimesheetRow.DECIHOURS_IN_DAY;
+				check /= BYTE_BASE;
+			}
+			bh.consume(valid && check == 0);
+		}
+	}
+
+	@Benchmark
+	public void validateSwar(Blackhole bh) {
+		for (long packed: weeks) {
+			bh.consume(PackedHoursHelper.isValid(packed));
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.yojana.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yojana.helpers.ReportHelper;
+import com.yojana.model.report.WorkPackageReport;
+
+/**
+ * The in-memory part of the weekly report: building one line per work
+ * package from the query results and rolling them up the WBS.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReportAggregationBenchmark {
+
+	@Param({ "4", "12" })
+	private int fanout;
+
+	@Param({ "2", "3" })
+	private int depth;
+
+	private WbsTree tree;
+
+	@Setup
+	public void setUp() {
+		tree = new WbsTree(fanout, depth);
+	}
+
+	@Benchmark
+	public Map<String, WorkPackageReport> aggregate() {
+		Map<String, WorkPackageReport> report = new HashMap<>();
+		for (int i = 0; i < tree.size(); i++) {
+			WorkPackageReport line = new WorkPackageReport(tree.ids.get(i), tree.parentIds.get(i),
+					tree.levels.get(i));
+			if (tree.levels.get(i) == depth) {
+				line.setHours(7.5);
+				line.setCharge(7.5 * 42.0);
+			}
+			report.put(line.getId(), line);
+		}
+		ReportHelper.aggregate(report);
+		return report;
+	}
+}
@@ -0,0 +1,84 @@
+package com.yojana.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.yojana.model.timesheet.TimesheetRow;
+
+/**
+ * Packing and unpacking of the daily hours of a timesheet row, over a
+ * batch of rows with random hours.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TimesheetRowBenchmark {
+
+	private static final int ROWS = 1024;
+
+	private TimesheetRow[] rows;
+
+	private int[] decihours;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(4911L);
+		rows = new TimesheetRow[ROWS];
+		decihours = new int[ROWS * TimesheetRow.DAYS_IN_WEEK];
+		for (int i = 0; i < ROWS; i++) {
+			rows[i] = new TimesheetRow("PR123", "WP1.1");
+			for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+				int value = random.nextInt(121);
+				rows[i].setDecihour(d, value);
+				decihours[i * TimesheetRow.DAYS_IN_WEEK + d] = value;
+			}
+		}
+	}
+
+	@Benchmark
+	public void getDecihour(Blackhole bh) {
+		for (TimesheetRow row: rows) {
+			for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+				bh.consume(row.getDecihour(d));
+			}
+		}
+	}
+
+	@Benchmark
+	public void setDecihour() {
+		for (int i = 0; i < ROWS; i++) {
+			for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+				rows[i].setDecihour(d, decihours[i * TimesheetRow.DAYS_IN_WEEK + d]);
+			}
+		}
+	}
+
+	@Benchmark
+	public void getDeciSum(Blackhole bh) {
+		for (TimesheetRow row: rows) {
+			bh.consume(row.getDeciSum());
+		}
+	}
+
+	@Benchmark
+	public void getHours(Blackhole bh) {
+		for (TimesheetRow row: rows) {
+			bh.consume(row.getHours());
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.yojana.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic work breakdown structure used by the benchmarks: every work
+ * package has the same number of children down to a fixed depth, with
+ * ids numbered the way WorkPackageManager assigns them (WP1, WP1.2, ...).
+ */
+final class WbsTree {
+
+	/** fixed seed so every run sees the same shuffled order */
+	private static final long SEED = 4911L;
+
+	final List<String> ids = new ArrayList<>();
+
+	final List<String> parentIds = new ArrayList<>();
+
+	final List<Integer> levels = new ArrayList<>();
+
+	/**
+	 * @param fanout children of every work package, and number of top level work packages
+	 * @param depth  number of levels below the top level
+	 */
+	WbsTree(int fanout, int depth) {
+		for (int i = 1; i <= fanout; i++) {
+			add("WP" + i, null, 0, fanout, depth);
+		}
+	}
+
+	private void add(String id, String parentId, int level, int fanout, int depth) {
+		ids.add(id);
+		parentIds.add(parentId);
+		levels.add(level);
+		if (level < depth) {
+			for (int i = 1; i <= fanout; i++) {
+				add(id + "." + i, id, level + 1, fanout, depth);
+			}
+		}
+	}
+
+	int size() {
+		return ids.size();
+	}
+
+	/** positions 0 .. size - 1 in a reproducible random order. */
+	List<Integer> shuffledPositions() {
+		List<Integer> positions = new ArrayList<>(size());
+		for (int i = 0; i < size(); i++) {
+			positions.add(i);
+		}
+		Collections.shuffle(positions, new Random(SEED));
+		return positions;
+	}
+}
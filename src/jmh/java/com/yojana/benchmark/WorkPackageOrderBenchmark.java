@@ -0,0 +1,69 @@
+package com.yojana.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yojana.model.project.WorkPackage;
+import com.yojana.model.project.WorkPackagePK;
+
+/**
+ * Ordering of a project's work packages, both as a plain sort and as the
+ * TreeSet copy the managers return.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WorkPackageOrderBenchmark {
+
+	@Param({ "4", "12" })
+	private int fanout;
+
+	@Param({ "2", "3" })
+	private int depth;
+
+	private List<WorkPackage> workPackages;
+
+	@Setup
+	public void setUp() {
+		WbsTree tree = new WbsTree(fanout, depth);
+		workPackages = new ArrayList<>(tree.size());
+		for (int i: tree.shuffledPositions()) {
+			WorkPackage wp = new WorkPackage();
+			wp.setWorkPackagePk(new WorkPackagePK(tree.ids.get(i), "PR123"));
+			wp.setParentWPId(tree.parentIds.get(i));
+			wp.setHierarchyLevel(tree.levels.get(i));
+			workPackages.add(wp);
+		}
+	}
+
+	@Benchmark
+	public List<WorkPackage> sort() {
+		List<WorkPackage> sorted = new ArrayList<>(workPackages);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	@Benchmark
+	public Set<WorkPackage> treeSet() {
+		return new TreeSet<>(workPackages);
+	}
+}
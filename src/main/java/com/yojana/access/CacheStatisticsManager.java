@@ -0,0 +1,60 @@
+package com.yojana.access;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.ejb.Stateless;
+import javax.enterprise.context.Dependent;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Reads the hit and miss counts of the second-level and query caches.
+ */
+@Dependent
+@Stateless
+public class CacheStatisticsManager implements Serializable {
+
+	private static final long serialVersionUID = 6157300489227410317L;
+
+	@PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
+
+	/** hit, miss and put counts of every cache region, and of the caches overall. */
+	public Map<String, Object> getStatistics() {
+		Statistics stats = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("secondLevelCache", counts(stats.getSecondLevelCacheHitCount(),
+				stats.getSecondLevelCacheMissCount(), stats.getSecondLevelCachePutCount()));
+		result.put("queryCache", counts(stats.getQueryCacheHitCount(),
+				stats.getQueryCacheMissCount(), stats.getQueryCachePutCount()));
+
+		Map<String, Object> regions = new LinkedHashMap<>();
+		for (String region: stats.getSecondLevelCacheRegionNames()) {
+			CacheRegionStatistics regionStats = stats.getDomainDataRegionStatistics(region);
+			if (regionStats != null) {
+				regions.put(region, counts(regionStats.getHitCount(), regionStats.getMissCount(),
+						regionStats.getPutCount()));
+			}
+		}
+		result.put("regions", regions);
+		return result;
+	}
+
+	/** evicts every entity and query result from the caches. */
+	public void evictAll() {
+		em.getEntityManagerFactory().getCache().evictAll();
+	}
+
+	private static Map<String, Long> counts(long hits, long misses, long puts) {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		counts.put("hits", hits);
+		counts.put("misses", misses);
+		counts.put("puts", puts);
+		return counts;
+	}
+}
@@ -6,14 +6,18 @@ package com.yojana.access;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
 
 import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 
+import com.yojana.helpers.StreamHelper;
 import com.yojana.model.employee.Credential;
+import com.yojana.security.AuthenticationCache;
 
 /**
  * This is the class called CredentialManager
@@ -32,6 +36,9 @@ public class CredentialManager implements Serializable {
 
     @PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
 
+    @Inject
+    private AuthenticationCache authCache;
+
     public CredentialManager() {}
 
     public Credential find(int id) {
@@ -64,12 +71,14 @@ public class CredentialManager implements Serializable {
 	@Transactional
     public void merge(Credential credential) {
         em.merge(credential);
+        authCache.invalidate(credential.getId());
     }
     
 	@Transactional
     public void remove(Credential credential) {
         credential = find(credential.getId());
         em.remove(credential);
+        authCache.invalidate(credential.getId());
     }
     
     public List<Credential> getAll() {
@@ -78,4 +87,15 @@ public class CredentialManager implements Serializable {
         return creds;
     }
 
+    /**
+     * Hands every credential to the action as it is read
+     *
+     * @param action called once per Credential
+     */
+    @Transactional
+    public void forEach(Consumer<? super Credential> action) {
+        TypedQuery<Credential> q = em.createQuery("SELECT c FROM Credential c", Credential.class);
+        StreamHelper.forEach(em, q, action);
+    }
+
 }
\ No newline at end of file
@@ -3,16 +3,20 @@ package com.yojana.access;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 import javax.enterprise.context.ConversationScoped;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 
+import com.yojana.helpers.StreamHelper;
 import com.yojana.model.employee.Employee;
 import com.yojana.model.timesheet.TimesheetRow;
+import com.yojana.security.AuthenticationCache;
 
 @ConversationScoped
 public class EmployeeManager implements Serializable{
@@ -24,6 +28,12 @@ public class EmployeeManager implements Serializable{
 	
 	@PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
 	
+	@Inject
+	private AuthenticationCache authCache;
+	
+	@Inject
+	private ProjectVersionTracker versionTracker;
+	
 	/** find an employee with id. */
 	public Employee find(int id) {
         return em.find(Employee.class, id);
@@ -46,6 +56,9 @@ public class EmployeeManager implements Serializable{
 	@Transactional
 	public void merge(Employee employee) {
         em.merge(employee);
+        authCache.invalidate(employee.getId());
+        // names and labour grades are in the weekly report of every project the employee charged to
+        versionTracker.changedAll();
     }
 	
 	/** remove an employee. */
@@ -53,6 +66,7 @@ public class EmployeeManager implements Serializable{
 	public void remove(Employee employee, int id) {
         employee = find(id);
         em.remove(employee);
+        authCache.invalidate(id);
     }
 	
 	public List<Employee> getAll() {       
@@ -62,17 +76,21 @@ public class EmployeeManager implements Serializable{
         return employees;
     }
 	
+	/** hands every employee to the action as it is read. */
+	@Transactional
+	public void forEach(Consumer<? super Employee> action) {
+		TypedQuery<Employee> query = em.createQuery("select e from Employee e",
+                Employee.class); 
+		StreamHelper.forEach(em, query, action);
+	}
+	
+	/** hours charged by an employee in a week, read from the timesheet totals. */
 	public double getHoursForWeek(int empId, LocalDate endWeek) {
-        TypedQuery<TimesheetRow> query = em.createQuery("select tr from TimesheetRow tr JOIN tr.timesheet t where t.endWeek = :endWeek AND t.ownerId = :ownerId", TimesheetRow.class);
+        TypedQuery<Long> query = em.createQuery("select coalesce(sum(t.totalDecihours), 0) from Timesheet t"
+        		+ " where t.endWeek = :endWeek AND t.ownerId = :ownerId", Long.class);
         query.setParameter("ownerId", empId);
         query.setParameter("endWeek", endWeek);
-        
-        List<TimesheetRow> rows = query.getResultList();
-        double sum = 0.0;
-        for (TimesheetRow row: rows) {
-        	sum += row.getSum();
-        }
-        return sum;
+        return query.getSingleResult() / (double) TimesheetRow.BASE10;
     }
 	
 }
@@ -1,6 +1,7 @@
 package com.yojana.access;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -13,6 +14,8 @@ import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 
 import com.yojana.model.estimate.Estimate;
+import com.yojana.model.estimate.EstimateRow;
+import com.yojana.model.estimate.EstimateType;
 import com.yojana.model.project.WorkPackage;
 import com.yojana.model.project.WorkPackagePK;
 
@@ -22,18 +25,28 @@ public class EstimateManager implements Serializable{
     
     private static final long serialVersionUID = -8709713671106036600L;
     
+    /** standard JPA hint applying an entity graph as a fetch graph */
+    private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+    
+    /** keeps a JPQL distinct in memory instead of sending it to the database */
+    private static final String PASS_DISTINCT_THROUGH = "hibernate.query.passDistinctThrough";
+    
     @PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
     
     @Inject
     private WorkPackageManager wpManager;
     
+    @Inject
+    private WorkPackageRollupManager rollupManager;
+    
     /**
-     * finds an estimate with id.
+     * finds an estimate with id, with its rows.
      * @param id
      * @return estimate with associated id
      */
     public Estimate find(UUID id) {
-        return em.find(Estimate.class, id);
+        return em.find(Estimate.class, id,
+                Collections.singletonMap(FETCH_GRAPH, em.getEntityGraph(Estimate.ROWS_GRAPH)));
     }
     
     /**
@@ -56,6 +69,7 @@ public class EstimateManager implements Serializable{
     	}
     	em.merge(wp);
         em.persist(estimate);
+        rollupManager.refreshEstimates(estimate.getProjectId(), estimate.getWorkPackageId());
     }
     
     /**
@@ -78,6 +92,7 @@ public class EstimateManager implements Serializable{
     	}
     	em.merge(wp);
         em.merge(estimate);
+        rollupManager.refreshEstimates(estimate.getProjectId(), estimate.getWorkPackageId());
     }
     
     /**
@@ -89,16 +104,18 @@ public class EstimateManager implements Serializable{
     public void remove(UUID id) {
         Estimate estimate = find(id);
         em.remove(estimate);
+        rollupManager.refreshEstimates(estimate.getProjectId(), estimate.getWorkPackageId());
     }
     
     /**
      * gets all estimates
+     * @param withRows whether to load the rows too
      * @return a list of estimates
      */
-    public List<Estimate> getAll() {
-        TypedQuery<Estimate> query = em.createQuery("select e from Estimate e",
+    public List<Estimate> getAll(boolean withRows) {
+        TypedQuery<Estimate> query = em.createQuery("select distinct e from Estimate e",
                 Estimate.class); 
-        List<Estimate> estimates = query.getResultList();
+        List<Estimate> estimates = fetchRows(query, withRows).getResultList();
         return estimates;
     }
     
@@ -106,17 +123,18 @@ public class EstimateManager implements Serializable{
      * get all estimates for a work package
      * @param workPackageId
      * @param projectId
+     * @param withRows whether to load the rows too
      * @return a list of estimates of that work package
      */
-    public List<Estimate> getAllForWorkPackage(String workPackageId, String projectId) {
-        TypedQuery<Estimate> query = em.createQuery("select e from Estimate e where"
+    public List<Estimate> getAllForWorkPackage(String workPackageId, String projectId, boolean withRows) {
+        TypedQuery<Estimate> query = em.createQuery("select distinct e from Estimate e where"
                 + " e.workPackageId = :workPackageId"
                 + " and e.projectId = :projectId"
                 + " ORDER BY e.type, e.forWeek",
                 Estimate.class); 
         query.setParameter("workPackageId", workPackageId);
         query.setParameter("projectId", projectId);
-        List<Estimate> estimates = query.getResultList();
+        List<Estimate> estimates = fetchRows(query, withRows).getResultList();
         return estimates;
     }
     
@@ -124,31 +142,86 @@ public class EstimateManager implements Serializable{
      * get all estimates for a work package
      * @param workPackageId
      * @param projectId
+     * @param withRows whether to load the rows too
      * @return a list of estimates of that work package
      */
-    public List<Estimate> getPlannedEstimateForWorkPackage(String workPackageId, String projectId) {
-        TypedQuery<Estimate> query = em.createQuery("select e from Estimate e where"
+    public List<Estimate> getPlannedEstimateForWorkPackage(String workPackageId, String projectId,
+            boolean withRows) {
+        TypedQuery<Estimate> query = em.createQuery("select distinct e from Estimate e where"
                 + " e.workPackageId = :workPackageId"
                 + " and e.projectId = :projectId"
                 + " and e.type = 'planned'",
                 Estimate.class); 
         query.setParameter("workPackageId", workPackageId);
         query.setParameter("projectId", projectId);
-        List<Estimate> estimates = query.getResultList();
+        List<Estimate> estimates = fetchRows(query, withRows).getResultList();
         return estimates;
     }
     
+    /**
+     * gets the latest estimate of a type for a work package, the one for the
+     * latest week and of those the last one created. Read through
+     * IXEstimateLatest, so only that one estimate is loaded.
+     * @param workPackageId
+     * @param projectId
+     * @param type
+     * @param withRows whether to load the rows too
+     * @return the latest estimate, null if the work package has none of that type
+     */
+    public Estimate getLatestForWorkPackage(String workPackageId, String projectId, EstimateType type,
+            boolean withRows) {
+        TypedQuery<Estimate> query = em.createQuery("select e from Estimate e where"
+                + " e.projectId = :projectId"
+                + " and e.workPackageId = :workPackageId"
+                + " and e.type = :type"
+                + " ORDER BY e.forWeek DESC, e.audit.createdAt DESC",
+                Estimate.class);
+        query.setParameter("workPackageId", workPackageId);
+        query.setParameter("projectId", projectId);
+        query.setParameter("type", type);
+        query.setMaxResults(1);
+        List<Estimate> estimates = query.getResultList();
+        if (estimates.isEmpty()) {
+            return null;
+        }
+        // a fetch graph would apply the limit in memory, the rows are batch loaded instead
+        Estimate estimate = estimates.get(0);
+        if (withRows) {
+            for (EstimateRow row: estimate.getRows()) {
+                // reading through the proxy loads it, together with the other rows' pay grades
+                if (row.getPayGrade() != null) {
+                    row.getPayGrade().getChargeRate();
+                }
+            }
+        }
+        return estimate;
+    }
+    
     /**
      * get all estimates for a project
      * @param projectId
+     * @param withRows whether to load the rows too
      * @return a list of estimates of that project
      */
-    public List<Estimate> getAllForProject(String projectId) {
-        TypedQuery<Estimate> query = em.createQuery("select e from Estimate e where"
+    public List<Estimate> getAllForProject(String projectId, boolean withRows) {
+        TypedQuery<Estimate> query = em.createQuery("select distinct e from Estimate e where"
                 + " e.projectId = :projectId",
                 Estimate.class);
         query.setParameter("projectId", projectId);
-        List<Estimate> estimates = query.getResultList();
+        List<Estimate> estimates = fetchRows(query, withRows).getResultList();
         return estimates;
     }
+    
+    /**
+     * Loads the rows and their pay grades in the same query as the estimates
+     * when asked for, otherwise they stay unloaded. Distinct only drops the
+     * repeated estimates in memory and is not passed on to the database.
+     */
+    private TypedQuery<Estimate> fetchRows(TypedQuery<Estimate> query, boolean withRows) {
+        if (withRows) {
+            query.setHint(FETCH_GRAPH, em.getEntityGraph(Estimate.ROWS_GRAPH));
+        }
+        query.setHint(PASS_DISTINCT_THROUGH, false);
+        return query;
+    }
 }
@@ -1,6 +1,7 @@
 package com.yojana.access;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -22,13 +23,17 @@ public class EstimateRowManager implements Serializable {
 
     private static final long serialVersionUID = 1L;
     
+    /** standard JPA hint applying an entity graph as a fetch graph */
+    private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+    
     @PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
     
     @Inject
     private EstimateManager estimateManager;
     
     public EstimateRow find(EstimateRowPK key) {
-        return em.find(EstimateRow.class, key);
+        return em.find(EstimateRow.class, key,
+                Collections.singletonMap(FETCH_GRAPH, em.getEntityGraph(EstimateRow.PAY_GRADE_GRAPH)));
     }
     
     @Transactional
@@ -70,8 +75,9 @@ public class EstimateRowManager implements Serializable {
     }
     
     public List<EstimateRow> getAll() {
-        TypedQuery<EstimateRow> query = em.createQuery("select e from EstimateRow",
+        TypedQuery<EstimateRow> query = em.createQuery("select e from EstimateRow e",
                 EstimateRow.class);  
+        query.setHint(FETCH_GRAPH, em.getEntityGraph(EstimateRow.PAY_GRADE_GRAPH));
         List<EstimateRow> estimateRows = query.getResultList();
         return estimateRows;
     }
@@ -81,6 +87,7 @@ public class EstimateRowManager implements Serializable {
                 + " where e.estimateRowPk.estimateId = :estimateId",
                 EstimateRow.class);  
         query.setParameter("estimateId", estimateId);
+        query.setHint(FETCH_GRAPH, em.getEntityGraph(EstimateRow.PAY_GRADE_GRAPH));
         List<EstimateRow> estimateRows = query.getResultList();
         return estimateRows;
     }
@@ -0,0 +1,213 @@
+package com.yojana.access;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.yojana.model.report.HoursCube;
+import com.yojana.model.timesheet.Timesheet;
+import com.yojana.model.timesheet.TimesheetRow;
+
+/**
+ * Keeps an HoursCube per project in memory. A cube is loaded with a single
+ * query the first time its project is asked for, then kept current by the
+ * row changes reported by TimesheetRowManager and TimesheetManager, which
+ * are applied once their transaction commits. A cube loaded while a commit
+ * touching its project is under way may already hold that commit's rows, so
+ * it is served but not kept. A cube that can no longer be updated in place
+ * is dropped and loaded again on the next request, and only the most
+ * recently used cubes are kept.
+ */
+@ApplicationScoped
+public class HoursCubeManager {
+
+    private static final int MAX_CUBES = 32;
+
+    @PersistenceContext(unitName = "comp4911-pms-rest-jpa")
+    EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    // least recently used cube is dropped once the limit is reached, guarded by this
+    private final Map<String, HoursCube> cubes = new LinkedHashMap<String, HoursCube>(16, 0.75f, true) {
+        private static final long serialVersionUID = -5302419876545190343L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, HoursCube> eldest) {
+            return size() > MAX_CUBES;
+        }
+    };
+
+    // committed changes per project, a cube loaded while one commits is not kept
+    private final Map<String, Long> versions = new HashMap<>();
+
+    // changes per project whose transaction is between beforeCompletion and afterCompletion
+    private final Map<String, Integer> committing = new HashMap<>();
+
+    // Gets the cube of a project, loading it if it is not in memory
+    public HoursCube getCube(String projectId) {
+        HoursCube cube;
+        synchronized (this) {
+            cube = cubes.get(projectId);
+        }
+        if (cube != null) {
+            return cube;
+        }
+        final long version = getVersion(projectId);
+        cube = load(projectId);
+        synchronized (this) {
+            if (getVersion(projectId) == version && !committing.containsKey(projectId)) {
+                cubes.putIfAbsent(projectId, cube);
+            }
+        }
+        return cube;
+    }
+
+    // Drops every cube, they are loaded again when next asked for
+    public synchronized void evictAll() {
+        cubes.clear();
+    }
+
+    // Records a row added to a timesheet in the current transaction
+    public void addRow(UUID timesheetId, TimesheetRow row) {
+        record(timesheetId, row.getProjectId(), row.getWorkPackageId(), 0L, row.getPackedHours());
+    }
+
+    // Records a row taken off a timesheet in the current transaction
+    public void removeRow(UUID timesheetId, TimesheetRow row) {
+        record(timesheetId, row.getProjectId(), row.getWorkPackageId(), row.getPackedHours(), 0L);
+    }
+
+    // Drops the cube of a project once the current transaction commits, for changes that move whole cells
+    public void invalidate(String projectId) {
+        // a change without a cell cannot be applied in place
+        getChanges().add(new Change(projectId, null, 0L, 0L));
+    }
+
+    /* every cell of a project, summed per employee, work package and week in the database */
+    private HoursCube load(String projectId) {
+        StringBuilder packed = new StringBuilder();
+        for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+            packed.append(d == TimesheetRow.FIRST_DAY ? "" : " | ")
+                    .append("(LEAST(SUM((tr.Hours >> ").append(d * Byte.SIZE).append(") & 255), 255) << ")
+                    .append(d * Byte.SIZE).append(")");
+        }
+        Query query = em.createNativeQuery("SELECT t.EmpID, tr.WorkPackageID, t.EndWeek, " + packed
+                + " FROM Timesheet t JOIN TimesheetRow tr ON tr.TimesheetID = t.TimesheetID"
+                + " WHERE tr.ProjectID = ? GROUP BY t.EmpID, tr.WorkPackageID, t.EndWeek");
+        query.setParameter(1, projectId);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+
+        HoursCube cube = new HoursCube(projectId);
+        for (Object[] row: rows) {
+            cube.put(((Number) row[0]).intValue(), (String) row[1], ((Date) row[2]).toLocalDate(),
+                    ((Number) row[3]).longValue());
+        }
+        return cube;
+    }
+
+    private synchronized boolean hasCube(String projectId) {
+        return cubes.containsKey(projectId);
+    }
+
+    private synchronized long getVersion(String projectId) {
+        Long version = versions.get(projectId);
+        return version == null ? 0L : version;
+    }
+
+    private void record(UUID timesheetId, String projectId, String workPackageId, long removed, long added) {
+        Change change = new Change(projectId, workPackageId, removed, added);
+        // the cell is only needed if there is a cube to update
+        if (hasCube(projectId)) {
+            Timesheet timesheet = em.find(Timesheet.class, timesheetId);
+            if (timesheet != null) {
+                change.empId = timesheet.getOwnerId();
+                change.endWeek = timesheet.getEndWeek();
+            }
+        }
+        getChanges().add(change);
+    }
+
+    /* changes of the current transaction, applied to the cubes once it commits */
+    private List<Change> getChanges() {
+        @SuppressWarnings("unchecked")
+        List<Change> changes = (List<Change>) registry.getResource(HoursCubeManager.class);
+        if (changes == null) {
+            final List<Change> pending = new ArrayList<>();
+            registry.putResource(HoursCubeManager.class, pending);
+            registry.registerInterposedSynchronization(new Synchronization() {
+                private boolean started;
+
+                @Override
+                public void beforeCompletion() {
+                    started = true;
+                    startCommit(pending);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    endCommit(pending, started, status == Status.STATUS_COMMITTED);
+                }
+            });
+            changes = pending;
+        }
+        return changes;
+    }
+
+    /* the rows may be visible to other transactions from here until the changes are applied */
+    private synchronized void startCommit(List<Change> changes) {
+        for (Change change: changes) {
+            committing.merge(change.projectId, 1, Integer::sum);
+        }
+    }
+
+    /* in one step, so no cube is kept between the end of the commit and its changes being applied */
+    private synchronized void endCommit(List<Change> changes, boolean started, boolean committed) {
+        for (Change change: changes) {
+            if (started) {
+                committing.computeIfPresent(change.projectId, (projectId, count) -> count == 1 ? null : count - 1);
+            }
+            if (!committed) {
+                continue;
+            }
+            versions.merge(change.projectId, 1L, Long::sum);
+            HoursCube cube = cubes.get(change.projectId);
+            if (cube != null && (change.endWeek == null || !cube.apply(change.empId, change.workPackageId,
+                    change.endWeek, change.removed, change.added))) {
+                cubes.remove(change.projectId);
+            }
+        }
+    }
+
+    private static final class Change {
+        private final String projectId;
+        private final String workPackageId;
+        private final long removed;
+        private final long added;
+        private int empId;
+        private LocalDate endWeek;
+
+        Change(String projectId, String workPackageId, long removed, long added) {
+            this.projectId = projectId;
+            this.workPackageId = workPackageId;
+            this.removed = removed;
+            this.added = added;
+        }
+    }
+}
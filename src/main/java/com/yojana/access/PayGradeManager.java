@@ -5,11 +5,15 @@ import java.util.List;
 
 import javax.ejb.Stateless;
 import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 
+import org.hibernate.annotations.QueryHints;
+
 import com.yojana.model.employee.PayGrade;
+import com.yojana.security.AuthenticationCache;
 
 @Dependent
 @Stateless
@@ -19,6 +23,12 @@ public class PayGradeManager implements Serializable {
     
     @PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
     
+    @Inject
+    private ProjectVersionTracker versionTracker;
+    
+    @Inject
+    private AuthenticationCache authCache;
+    
     public PayGrade find(String labourGrade) {
         return em.find(PayGrade.class, labourGrade);
     }
@@ -29,16 +39,24 @@ public class PayGradeManager implements Serializable {
     
     public void merge(PayGrade payGrade) {
         em.merge(payGrade);
+        em.getEntityManagerFactory().getCache().evict(PayGrade.class, payGrade.getLabourGrade());
+        // charge rates are in the weekly report of every project
+        versionTracker.changedAll();
+        authCache.invalidateAll();
     }
     
     public void remove(PayGrade payGrade, String labourGrade) {
         payGrade = find(labourGrade);
         em.remove(payGrade);
+        em.getEntityManagerFactory().getCache().evict(PayGrade.class, labourGrade);
+        versionTracker.changedAll();
+        authCache.invalidateAll();
     }
     
     public List<PayGrade> getAll() {
         TypedQuery<PayGrade> query = em.createQuery("select p from PayGrade p",
                 PayGrade.class);
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
         List<PayGrade> payGrades = query.getResultList();
         return payGrades;
     }
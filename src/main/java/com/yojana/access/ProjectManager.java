@@ -2,6 +2,7 @@ package com.yojana.access;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.function.Consumer;
 
 import javax.ejb.Stateless;
 import javax.enterprise.context.Dependent;
@@ -11,6 +12,7 @@ import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 
+import com.yojana.helpers.StreamHelper;
 import com.yojana.model.project.Project;
 
 @Dependent
@@ -39,6 +41,7 @@ public class ProjectManager implements Serializable {
 	@Transactional
 	public void merge(Project project) {
         em.merge(project);
+        em.getEntityManagerFactory().getCache().evict(Project.class, project.getId());
     }
 	
 	/** remove an employee. */
@@ -46,6 +49,7 @@ public class ProjectManager implements Serializable {
 	public void remove(Project project, String id) {
         project = find(id);
         em.remove(project);
+        em.getEntityManagerFactory().getCache().evict(Project.class, id);
     }
 	
 	public List<Project> getAll() {       
@@ -55,6 +59,13 @@ public class ProjectManager implements Serializable {
         return projects;
     }
 	
+	/** hands every project to the action as it is read. */
+	public void forEach(Consumer<? super Project> action) {
+		TypedQuery<Project> query = em.createQuery("SELECT p FROM Project p",
+                Project.class); 
+		StreamHelper.forEach(em, query, action);
+	}
+	
 	public List<Project> getAllForEmployee(int empId) {       
         TypedQuery<Project> query = em.createQuery("SELECT DISTINCT p FROM Project p JOIN FETCH" 
                 + " p.employees e where e.id = :empId", Project.class); 
@@ -0,0 +1,84 @@
+package com.yojana.access;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Counts the committed changes to the data reports of a project are built
+ * from: charges, estimates, timesheets and the work packages themselves.
+ * Changes to data shared by every project, such as pay grades and
+ * employees, count for all projects. Anything computed from a project can
+ * be kept as long as its version is unchanged.
+ */
+@ApplicationScoped
+public class ProjectVersionTracker {
+
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    /** stands for every project in the changes of a transaction */
+    private static final String ALL_PROJECTS = "*";
+
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    // changes counted for every project
+    private final AtomicLong allVersion = new AtomicLong();
+
+    // Gets the number of committed changes to a project
+    public long getVersion(String projectId) {
+        Long version = versions.get(projectId);
+        return allVersion.get() + (version == null ? 0L : version);
+    }
+
+    // Records a change to a project, counted once the current transaction commits
+    public void changed(String projectId) {
+        if (registry.getTransactionKey() == null) {
+            count(projectId);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> projectIds = (Set<String>) registry.getResource(ProjectVersionTracker.class);
+        if (projectIds == null) {
+            final Set<String> changed = new HashSet<>();
+            registry.putResource(ProjectVersionTracker.class, changed);
+            registry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        for (String id: changed) {
+                            count(id);
+                        }
+                    }
+                }
+            });
+            projectIds = changed;
+        }
+        projectIds.add(projectId);
+    }
+
+    // Records a change to data every project depends on
+    public void changedAll() {
+        changed(ALL_PROJECTS);
+    }
+
+    private void count(String projectId) {
+        if (ALL_PROJECTS.equals(projectId)) {
+            allVersion.incrementAndGet();
+        } else {
+            versions.merge(projectId, 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.yojana.access;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.yojana.model.report.ReportJob;
+import com.yojana.model.report.ReportJobStatus;
+import com.yojana.model.report.ReportType;
+import com.yojana.model.report.WorkPackageReport;
+
+/**
+ * Generates reports in the background on the container's managed executor
+ * and keeps the latest report of every project, type and date. A cached
+ * report is served for as long as the version of its project is the one it
+ * was generated from.
+ */
+@ApplicationScoped
+public class ReportJobManager {
+
+    /** jobs waiting or running at once, further jobs are refused */
+    private static final int MAX_QUEUED_JOBS = 8;
+
+    private static final int MAX_CACHED_REPORTS = 64;
+
+    /** how long a finished job can still be polled */
+    private static final long JOB_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Inject
+    private ReportManager reportManager;
+
+    @Inject
+    private ProjectVersionTracker versionTracker;
+
+    private final Map<UUID, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    // least recently used report is evicted once the cache is full
+    private final Map<String, CachedReport> reports = new LinkedHashMap<String, CachedReport>(16, 0.75f, true) {
+        private static final long serialVersionUID = 6050372862913716498L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedReport> eldest) {
+            return size() > MAX_CACHED_REPORTS;
+        }
+    };
+
+    // Gets a report, generating it only if its project changed since it was cached
+    public Map<String, WorkPackageReport> getReport(String projectId, ReportType type, LocalDate date) {
+        final String key = getKey(projectId, type, date);
+        final long version = versionTracker.getVersion(projectId);
+        Map<String, WorkPackageReport> report = getCached(key, version);
+        if (report != null) {
+            return report;
+        }
+        report = type == ReportType.earnedValue ? reportManager.generateMonthlyReport(projectId, date)
+                : reportManager.generateWeeklyReport(projectId, date);
+        // a change committed while generating may or may not be in the report
+        if (versionTracker.getVersion(projectId) == version) {
+            synchronized (reports) {
+                reports.put(key, new CachedReport(version, report));
+            }
+        }
+        return report;
+    }
+
+    // Starts generating a report in the background, null if too many jobs are already queued
+    public ReportJob submit(String projectId, ReportType type, LocalDate date, int empId) {
+        removeExpired();
+        final ReportJob job = new ReportJob(projectId, type, date, empId);
+        final Map<String, WorkPackageReport> cached = getCached(getKey(projectId, type, date),
+                versionTracker.getVersion(projectId));
+        if (cached != null) {
+            job.complete(cached);
+            jobs.put(job.getId(), job);
+            return job;
+        }
+        if (queued.incrementAndGet() > MAX_QUEUED_JOBS) {
+            queued.decrementAndGet();
+            return null;
+        }
+        jobs.put(job.getId(), job);
+        try {
+            executor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            jobs.remove(job.getId());
+            return null;
+        }
+        return job;
+    }
+
+    // Gets a job by id, null if unknown or expired
+    public ReportJob find(UUID id) {
+        return jobs.get(id);
+    }
+
+    // Drops every cached report
+    public void evictAll() {
+        synchronized (reports) {
+            reports.clear();
+        }
+    }
+
+    private void run(ReportJob job) {
+        try {
+            job.setStatus(ReportJobStatus.running);
+            job.complete(getReport(job.getProjectId(), job.getType(), job.getDate()));
+        } catch (RuntimeException e) {
+            job.fail(e.getMessage());
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private static String getKey(String projectId, ReportType type, LocalDate date) {
+        return projectId + "|" + type + "|" + date;
+    }
+
+    private Map<String, WorkPackageReport> getCached(String key, long version) {
+        synchronized (reports) {
+            CachedReport cached = reports.get(key);
+            return cached == null || cached.version != version ? null : cached.report;
+        }
+    }
+
+    private void removeExpired() {
+        final long now = System.currentTimeMillis();
+        final Iterator<ReportJob> it = jobs.values().iterator();
+        while (it.hasNext()) {
+            ReportJob job = it.next();
+            if (job.getCompletedAt() != null && job.getCompletedAt().getTime() + JOB_TTL_MILLIS < now) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class CachedReport {
+        private final long version;
+        private final Map<String, WorkPackageReport> report;
+
+        CachedReport(long version, Map<String, WorkPackageReport> report) {
+            this.version = version;
+            this.report = report;
+        }
+    }
+}
@@ -4,21 +4,25 @@
 package com.yojana.access;
 
 import java.io.Serializable;
+import java.sql.Date;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
 
 import javax.ejb.Stateless;
 import javax.enterprise.context.Dependent;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.persistence.TypedQuery;
+import javax.persistence.Query;
 
-import com.yojana.model.estimate.Estimate;
-import com.yojana.model.project.WorkPackage;
+import com.yojana.helpers.ReportHelper;
+import com.yojana.model.employee.PayGrade;
+import com.yojana.model.project.WorkPackageRollup;
+import com.yojana.model.report.EmployeeCharge;
+import com.yojana.model.report.WorkPackageReport;
 import com.yojana.model.timesheet.TimesheetRow;
 
 /**
@@ -34,215 +38,122 @@ public class ReportManager implements Serializable {
 	 */
 	private static final long serialVersionUID = -7675534862978318981L;
 	
-	@PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
+	/** Timesheet weeks run Saturday to Friday. */
+	private static final DayOfWeek WEEK_END = DayOfWeek.FRIDAY;
 	
-	public Map<String, Map<String, Object>> generateMonthlyReport(String projectId, LocalDate date) {
-		Map<String, Map<String, Object>> report = new HashMap<>();
-		TypedQuery<WorkPackage> query = em.createQuery(
-				"select DISTINCT w from WorkPackage w"
-				+ " LEFT JOIN FETCH w.estimates e"
-				+ " LEFT JOIN FETCH w.childWPs c"
-				+ " LEFT JOIN FETCH e.rows er"
-				+ " LEFT JOIN FETCH w.rows tr"
-				+ " LEFT JOIN FETCH tr.timesheet t"
-				+ " LEFT JOIN FETCH t.employee e"
-				+ " where w.workPackagePk.projectID = :projectId",
-                WorkPackage.class); 
-		query.setParameter("projectId", projectId);
-		List<WorkPackage> wps = query.getResultList();
-        Set<WorkPackage> workPackages = new TreeSet<WorkPackage>(wps);
-        
-        for (WorkPackage wp: workPackages) {
-        	String id = wp.getWorkPackagePk().getId();
-        	if (report.containsKey(id)) {
-        		continue;
-        	}
-        	
-        	if (wp.getIsLowestLevel()) {
-        		report.put(id, extractLowestLevelWorkPackageMonthlyData(wp));
-        		continue;
-        	}
-        	
-        	Map<String, Object> data = new HashMap<>();
-        	report.put(id, data);
-        	
-        	Double charge = 0.0;
-        	Double planned = 0.0;
-        	Double costToComplete = 0.0;
-        	Double costAtCompletion = 0.0;
-        	Double initialEstimate = wp.getInitialEstimate();
-        	Double budget = wp.getBudget();
-        	
-        	for (WorkPackage child: wp.getChildWPs()) {
-        		String childId = child.getWorkPackagePk().getId();
-        		if (!child.getIsLowestLevel()) {
-        			continue;
-        		}
-        		if (report.containsKey(childId)) {
-        			charge += (Double) report.get(childId).get("charge");
-        			planned += (Double) report.get(childId).get("planned");
-        			costToComplete += (Double) report.get(childId).get("costToComplete");
-        			costAtCompletion += (Double) report.get(childId).get("costAtCompletion");
-        		} else {
-        			Map<String, Object> childData = extractLowestLevelWorkPackageMonthlyData(child);
-        			charge += (Double) childData.get("charge");
-        			planned += (Double) childData.get("planned");
-        			costToComplete += (Double) childData.get("costToComplete");
-        			costAtCompletion += (Double) childData.get("costAtCompletion");
-        			report.put(childId, childData);
-        		}
-        	}
-        	
-        	data.put("id", wp.getWorkPackagePk().getId());
-    		data.put("charge", charge);
-    		data.put("planned", planned);
-    		data.put("budget", budget);
-    		data.put("costToComplete", costToComplete);
-    		data.put("costAtCompletion", costAtCompletion);
-    		data.put("initialEstimate", initialEstimate);
-        	
-        }
-        
-        return report;
-	}
+	@PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
 	
-	public Map<String, Map<String, Object>> generateWeeklyReport(String projectId, LocalDate date) {
-		Map<String, Map<String, Object>> report = new HashMap<>();
-		TypedQuery<WorkPackage> query = em.createQuery(
-				"select DISTINCT w from WorkPackage w"
-				+ " LEFT JOIN FETCH w.childWPs c"
-				+ " LEFT JOIN FETCH w.rows tr"
-				+ " LEFT JOIN FETCH tr.timesheet t"
-				+ " LEFT JOIN FETCH t.employee e"
-				+ " where w.workPackagePk.projectID = :projectId",
-                WorkPackage.class); 
+	/**
+	 * Earned value report, read straight from the materialized rollups.
+	 * Rollups already hold the totals of the whole subtree of each work package.
+	 */
+	public Map<String, WorkPackageReport> generateMonthlyReport(String projectId, LocalDate date) {
+		Map<String, WorkPackageReport> report = new HashMap<>();
+		Query query = em.createQuery(
+				"select w.workPackagePk.id, w.parentWPId, w.hierarchyLevel, w.budget, w.initialEstimate, r"
+				+ " from WorkPackage w"
+				+ " LEFT JOIN WorkPackageRollup r"
+				+ " ON r.workPackagePk.projectID = w.workPackagePk.projectID"
+				+ " AND r.workPackagePk.id = w.workPackagePk.id"
+				+ " where w.workPackagePk.projectID = :projectId");
 		query.setParameter("projectId", projectId);
-		List<WorkPackage> wps = query.getResultList();
-        Set<WorkPackage> workPackages = new TreeSet<WorkPackage>(wps);
-        
-        for (WorkPackage wp: workPackages) {
-        	String id = wp.getWorkPackagePk().getId();
-        	if (report.containsKey(id)) {
-        		continue;
-        	}
-        	
-        	if (wp.getIsLowestLevel()) {
-        		report.put(id, extractLowestLevelWorkPackageWeeklyData(wp));
-        		continue;
-        	}
-        	
-        	Map<String, Object> data = new HashMap<>();
-        	report.put(id, data);
-        	
-        	Double charge = 0.0;
-        	Double chargeHours = 0.0;
-        	
-        	for (WorkPackage child: wp.getChildWPs()) {
-        		String childId = child.getWorkPackagePk().getId();
-        		if (!child.getIsLowestLevel()) {
-        			continue;
-        		}
-        		if (report.containsKey(childId)) {
-        			charge += (Double) report.get(childId).get("charge");
-        			chargeHours += (Double) report.get(childId).get("chargeHours");
-        		} else {
-        			Map<String, Object> childData = extractLowestLevelWorkPackageWeeklyData(child);
-        			charge += (Double) childData.get("charge");
-        			chargeHours += (Double) childData.get("hours");
-        			report.put(childId, childData);
-        		}
-        	}
-        	
-        	data.put("id", wp.getWorkPackagePk().getId());
-    		data.put("charge", charge);
-    		data.put("hours", chargeHours);
-        	
-        }
-        
-        return report;
-	}
-	
-	private Map<String, Object> extractLowestLevelWorkPackageMonthlyData(WorkPackage wp) {
-		Map<String, Object> data = new HashMap<>();
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = query.getResultList();
 		
-		Double charge = 0.0;
-    	Double planned = 0.0;
-    	Double costToComplete = 0.0;
-    	Double costAtCompletion = 0.0;
-    	Double initialEstimate = 0.0;
-    	Double budget = 0.0;
-    	
-    	for(TimesheetRow row: wp.getRows()) {
-			charge += (row.getSum() * row.getTimesheet().getEmployee().getLabourGrade().getChargeRate());
-		}
-		Estimate weekly = null;
-		for (Estimate estimate: wp.getEstimates()) {
-			switch (estimate.getType()) {
-	    	case initial:
-	    		initialEstimate = estimate.getEstimateToComplete();
-	    		break;
-	    	case planned:
-	    		planned = estimate.getEstimateToComplete();
-	    		break;
-	    	case weekly:
-	    		if (weekly == null) {
-	    			weekly = estimate;
-	    		} else { 
-	    			if (!(weekly.getAudit().getCreatedAt().compareTo(estimate.getAudit().getCreatedAt()) > 0)) {
-	    				weekly = estimate;
-	    			}
-	    		}
-	    	default:
-	    		break;
-	    	}
-		}
-		if (weekly != null) {
-			costToComplete = weekly.getEstimateToComplete();
+		for (Object[] row: rows) {
+			WorkPackageReport line = new WorkPackageReport((String) row[0], (String) row[1], (Integer) row[2]);
+			line.setBudget(row[3] == null ? 0.0 : (Double) row[3]);
+			line.setInitialEstimate(row[4] == null ? 0.0 : (Double) row[4]);
+			WorkPackageRollup rollup = (WorkPackageRollup) row[5];
+			if (rollup != null) {
+				line.setHours(rollup.getChargeHours());
+				line.setCharge(rollup.getCharge());
+				line.setPlanned(rollup.getPlanned());
+				line.setCostToComplete(rollup.getEstimateToComplete());
+				line.setCostAtCompletion(rollup.getEstimateAtCompletion());
+			}
+			report.put(line.getId(), line);
 		}
-		costAtCompletion = costToComplete + charge;
-		
-		data.put("id", wp.getWorkPackagePk().getId());
-		data.put("charge", charge);
-		data.put("planned", planned);
-		data.put("budget", budget);
-		data.put("costToComplete", costToComplete);
-		data.put("costAtCompletion", costAtCompletion);
-		data.put("initialEstimate", initialEstimate);
 		
-		return data;
+		return report;
 	}
 	
-	private Map<String, Object> extractLowestLevelWorkPackageWeeklyData(WorkPackage wp) {
-		Map<String, Object> data = new HashMap<>();
+	/**
+	 * Hours and charges per work package for the week containing the given
+	 * date, with a per employee breakdown for lowest level work packages.
+	 * Totals include every level below a work package. Charges are the ones
+	 * stored with the rows, like the rollups, so a later rate change does not
+	 * alter past weeks.
+	 */
+	public Map<String, WorkPackageReport> generateWeeklyReport(String projectId, LocalDate date) {
+		Map<String, WorkPackageReport> report = getReportTree(projectId);
+		LocalDate weekEnd = date.with(TemporalAdjusters.nextOrSame(WEEK_END));
 		
-		Double charge = 0.0;
-		Double chargeHours = 0.0;
+		Query query = em.createNativeQuery(
+				"SELECT tr.WorkPackageID, e.EmpID, e.EmpName, pg.LabourGrade, pg.ChargeRate,"
+				+ " SUM(tr.TotalDecihours), SUM(tr.Charge)"
+				+ " FROM Timesheet t"
+				+ " JOIN TimesheetRow tr ON tr.TimesheetID = t.TimesheetID"
+				+ " JOIN Employee e ON e.EmpID = t.EmpID"
+				+ " LEFT JOIN PayGrade pg ON pg.LabourGrade = e.LabourGrade"
+				+ " WHERE t.EndWeek > ? AND t.EndWeek <= ? AND tr.ProjectID = ?"
+				+ " GROUP BY tr.WorkPackageID, e.EmpID, e.EmpName, pg.LabourGrade, pg.ChargeRate");
+		query.setParameter(1, Date.valueOf(weekEnd.minusWeeks(1)));
+		query.setParameter(2, Date.valueOf(weekEnd));
+		query.setParameter(3, projectId);
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = query.getResultList();
 		
-		Map<Integer, Map<String, Object>> details = new HashMap<>();
-    	
-    	for(TimesheetRow row: wp.getRows()) {
-			charge += (row.getSum() * row.getTimesheet().getEmployee().getLabourGrade().getChargeRate());
-			chargeHours += row.getSum();
+		Map<String, PayGrade> payGrades = new HashMap<>();
+		for (Object[] row: rows) {
+			WorkPackageReport line = report.get((String) row[0]);
+			if (line == null) {
+				continue;
+			}
+			int empId = ((Number) row[1]).intValue();
+			PayGrade payGrade = getPayGrade(payGrades, (String) row[3], (Number) row[4]);
+			double hours = TimesheetRow.toHour(((Number) row[5]).intValue());
 			
-			int employeeId = row.getTimesheet().getOwnerId();
-			if (details.containsKey(employeeId)) {
-				Double prev = (Double) details.get(employeeId).get("charge");
-				details.get(employeeId).put("charge", prev + row.getSum() * row.getTimesheet().getEmployee().getLabourGrade().getChargeRate());
-			} else {
-				details.put(employeeId, new HashMap<>());
-				details.get(employeeId).put("empId", employeeId);
-				details.get(employeeId).put("empName", row.getTimesheet().getEmployee().getFullName());
-				details.get(employeeId).put("charge", row.getSum() * row.getTimesheet().getEmployee().getLabourGrade().getChargeRate());
-				details.get(employeeId).put("payGrade", row.getTimesheet().getEmployee().getLabourGrade());
+			if (line.getDetails() == null) {
+				line.setDetails(new HashMap<>());
 			}
+			EmployeeCharge detail = new EmployeeCharge(empId, (String) row[2], payGrade);
+			detail.add(hours, ((Number) row[6]).doubleValue());
+			line.getDetails().put(empId, detail);
+			line.setHours(line.getHours() + detail.getHours());
+			line.setCharge(line.getCharge() + detail.getCharge());
 		}
+		ReportHelper.aggregate(report);
 		
-		data.put("id", wp.getWorkPackagePk().getId());
-		data.put("charge", charge);
-		data.put("hours", chargeHours);
-		data.put("details", details);
-		
-		return data;
+		return report;
+	}
+	
+	/* empty report lines for every work package of a project */
+	private Map<String, WorkPackageReport> getReportTree(String projectId) {
+		Map<String, WorkPackageReport> report = new HashMap<>();
+		Query query = em.createQuery(
+				"select w.workPackagePk.id, w.parentWPId, w.hierarchyLevel from WorkPackage w"
+				+ " where w.workPackagePk.projectID = :projectId");
+		query.setParameter("projectId", projectId);
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = query.getResultList();
+		for (Object[] row: rows) {
+			WorkPackageReport line = new WorkPackageReport((String) row[0], (String) row[1], (Integer) row[2]);
+			report.put(line.getId(), line);
+		}
+		return report;
+	}
+	
+	/* one PayGrade instance per labour grade in a report */
+	private PayGrade getPayGrade(Map<String, PayGrade> payGrades, String labourGrade, Number chargeRate) {
+		PayGrade payGrade = payGrades.get(labourGrade);
+		if (payGrade == null) {
+			payGrade = new PayGrade();
+			payGrade.setLabourGrade(labourGrade);
+			payGrade.setChargeRate(chargeRate == null ? 0.0f : chargeRate.floatValue());
+			payGrades.put(labourGrade, payGrade);
+		}
+		return payGrade;
 	}
 
 }
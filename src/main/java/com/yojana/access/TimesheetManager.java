@@ -1,8 +1,11 @@
 package com.yojana.access;
 
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import javax.ejb.Stateless;
 import javax.enterprise.context.Dependent;
@@ -12,7 +15,12 @@ import javax.persistence.TypedQuery;
 import javax.ws.rs.PathParam;
 import javax.persistence.EntityManager;
 
+import com.yojana.helpers.StreamHelper;
 import com.yojana.model.timesheet.Timesheet;
+import com.yojana.model.timesheet.TimesheetCursor;
+import com.yojana.model.timesheet.TimesheetRow;
+import com.yojana.model.timesheet.TimesheetStatus;
+import com.yojana.model.timesheet.TimesheetSummary;
 import com.yojana.model.project.WorkPackage;
 import com.yojana.model.project.WorkPackagePK;
 
@@ -28,6 +36,13 @@ public class TimesheetManager implements Serializable {
 	@PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
 	@Inject
     private WorkPackageManager wpManager;
+	@Inject
+	private WorkPackageRollupManager rollupManager;
+	@Inject
+	private HoursCubeManager cubeManager;
+	
+	@Inject
+	private ProjectVersionTracker versionTracker;
 	
 	public TimesheetManager() {}
 	
@@ -43,11 +58,35 @@ public class TimesheetManager implements Serializable {
 	
 	/** update a timesheet. */
 	public void merge(Timesheet timesheet) {
+        Timesheet old = find(timesheet.getId());
+        // read before the merge, which copies the new values onto the managed instance
+        boolean moved = old != null && (old.getOwnerId() != timesheet.getOwnerId()
+        		|| !Objects.equals(old.getEndWeek(), timesheet.getEndWeek()));
         em.merge(timesheet);
+        // the week and owner of a timesheet are in the weekly reports of the projects it charges
+        TypedQuery<String> query = em.createQuery("select distinct tr.projectId from TimesheetRow tr"
+        		+ " where tr.timesheetId = :id", String.class);
+        query.setParameter("id", timesheet.getId());
+        for (String projectId: query.getResultList()) {
+        	versionTracker.changed(projectId);
+        	// every row moves to another cell of the hours cube
+        	if (moved) {
+        		cubeManager.invalidate(projectId);
+        	}
+        }
     }
 	
 	public void remove(UUID id) {
         Timesheet timesheet = find(id); 
+        // rows are removed by the database cascade, take their charges off the rollups first
+        TypedQuery<TimesheetRow> query = em.createQuery("select tr from TimesheetRow tr where tr.timesheetId = :id",
+        		TimesheetRow.class);
+        query.setParameter("id", id);
+        for (TimesheetRow row: query.getResultList()) {
+        	rollupManager.addCharge(row.getProjectId(), row.getWorkPackageId(), -row.getSum(), -row.getCharge());
+        	cubeManager.removeRow(id, row);
+        	versionTracker.changed(row.getProjectId());
+        }
         em.remove(timesheet);
     }
 	
@@ -57,6 +96,68 @@ public class TimesheetManager implements Serializable {
         return query.getResultList();
     }
 	
+	/** get every timesheet matching the filters, newest week first. Null filters are ignored. */
+	public List<Timesheet> getAll(TimesheetStatus status, Integer empId, LocalDate from, LocalDate to) {
+		return createFilteredQuery(status, empId, from, to, null).getResultList();
+	}
+	
+	/**
+	 * get a page of timesheets, newest week first. Null filters are ignored,
+	 * the page starts right after the cursor when one is given.
+	 */
+	public List<Timesheet> getPage(TimesheetStatus status, Integer empId, LocalDate from, LocalDate to,
+			TimesheetCursor after, int maxResults) {
+		TypedQuery<Timesheet> query = createFilteredQuery(status, empId, from, to, after);
+		query.setMaxResults(maxResults);
+		return query.getResultList();
+	}
+	
+	/** hands every timesheet matching the filters to the action as it is read. */
+	public void forEach(TimesheetStatus status, Integer empId, LocalDate from, LocalDate to,
+			Consumer<? super Timesheet> action) {
+		StreamHelper.forEach(em, createFilteredQuery(status, empId, from, to, null), action);
+	}
+	
+	private TypedQuery<Timesheet> createFilteredQuery(TimesheetStatus status, Integer empId, LocalDate from,
+			LocalDate to, TimesheetCursor after) {
+		StringBuilder jpql = new StringBuilder("select t from Timesheet t where 1 = 1");
+		if (status != null) {
+			jpql.append(" and t.status = :status");
+		}
+		if (empId != null) {
+			jpql.append(" and t.ownerId = :empId");
+		}
+		if (from != null) {
+			jpql.append(" and t.endWeek >= :from");
+		}
+		if (to != null) {
+			jpql.append(" and t.endWeek <= :to");
+		}
+		if (after != null) {
+			jpql.append(" and (t.endWeek < :afterWeek or (t.endWeek = :afterWeek and t.id < :afterId))");
+		}
+		jpql.append(" order by t.endWeek desc, t.id desc");
+		
+		TypedQuery<Timesheet> query = em.createQuery(jpql.toString(), Timesheet.class);
+		if (status != null) {
+			query.setParameter("status", status);
+		}
+		if (empId != null) {
+			query.setParameter("empId", empId);
+		}
+		if (from != null) {
+			query.setParameter("from", from);
+		}
+		if (to != null) {
+			query.setParameter("to", to);
+		}
+		if (after != null) {
+			query.setParameter("afterWeek", after.getEndWeek());
+			query.setParameter("afterId", after.getId());
+		}
+		return query;
+	}
+	
 	/** get all timesheets. */
 	public List<Timesheet> getAllForEmployee(Integer empId) {       
 		TypedQuery<Timesheet> query = em.createQuery("select t from Timesheet t where EmpID = :empId", Timesheet.class);
@@ -77,6 +178,42 @@ public class TimesheetManager implements Serializable {
 		return getAllForEmployee(empID);
 	}
 
+	/** number of submitted timesheets waiting for an approver. */
+	public long countSubmittedForApprover(int approverId) {
+		TypedQuery<Long> query = em.createQuery("select count(t) from Timesheet t JOIN t.employee e"
+				+ " where e.timesheetApproverId = :approverId and t.status = :status", Long.class);
+		query.setParameter("approverId", approverId);
+		query.setParameter("status", TimesheetStatus.submitted);
+		return query.getSingleResult();
+	}
+
+	/**
+	 * A page of the submitted timesheets waiting for an approver, newest
+	 * week first, as summaries with the total hours of each sheet.
+	 *
+	 * @param after      last timesheet of the previous page, null for the first page
+	 * @param maxResults maximum number of summaries to return
+	 */
+	public List<TimesheetSummary> getSubmittedSummariesForApprover(int approverId, TimesheetCursor after,
+			int maxResults) {
+		String jpql = "select new com.yojana.model.timesheet.TimesheetSummary(t.id, e.id, e.fullName, t.endWeek,"
+				+ " t.totalDecihours) from Timesheet t JOIN t.employee e"
+				+ " where e.timesheetApproverId = :approverId and t.status = :status";
+		if (after != null) {
+			jpql += " and (t.endWeek < :afterWeek or (t.endWeek = :afterWeek and t.id < :afterId))";
+		}
+		jpql += " order by t.endWeek desc, t.id desc";
+		TypedQuery<TimesheetSummary> query = em.createQuery(jpql, TimesheetSummary.class);
+		query.setParameter("approverId", approverId);
+		query.setParameter("status", TimesheetStatus.submitted);
+		if (after != null) {
+			query.setParameter("afterWeek", after.getEndWeek());
+			query.setParameter("afterId", after.getId());
+		}
+		query.setMaxResults(maxResults);
+		return query.getResultList();
+	}
+
 	/** get all submitted timesheets. **/
 	public List<Timesheet> getAllSubmittedTimesheetsForApprover(Integer empId) {
 		TypedQuery<Timesheet> query = em.createQuery(
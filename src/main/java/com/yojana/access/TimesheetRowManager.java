@@ -2,16 +2,24 @@
 package com.yojana.access;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.ejb.Stateless;
 import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
+import org.hibernate.query.NativeQuery;
+
 import com.yojana.model.timesheet.TimesheetRow;
 import com.yojana.model.timesheet.TimesheetRowPK;
 import com.yojana.model.project.WorkPackagePK;
@@ -28,6 +36,12 @@ public class TimesheetRowManager implements Serializable {
 	@PersistenceContext(unitName = "comp4911-pms-rest-jpa")
 	EntityManager em;
 
+	@Inject
+	private WorkPackageRollupManager rollupManager;
+
+	@Inject
+	private HoursCubeManager cubeManager;
+
 	public TimesheetRowManager() {
 	}
 
@@ -38,40 +52,191 @@ public class TimesheetRowManager implements Serializable {
 
 	/** add a timesheetrow. */
 	public void persist(TimesheetRow timesheetrow) {
-		Query query = em.createNativeQuery(
-				"INSERT INTO TimesheetRow (Notes, Hours, ProjectID, TimesheetID, WorkPackageID, RowIndex) VALUES (?,?,?,?,?,?)");
+		double charge = timesheetrow.getSum() * rollupManager.getChargeRate(timesheetrow.getTimesheetId());
+		Query query = em.createNativeQuery("INSERT INTO TimesheetRow (Notes, Hours, ProjectID, TimesheetID,"
+				+ " WorkPackageID, RowIndex, Charge) VALUES (?,?,?,?,?,?,?)");
 		query.setParameter(1, timesheetrow.getNotes());
 		query.setParameter(2, timesheetrow.getPackedHours());
 		query.setParameter(3, timesheetrow.getProjectId());
 		query.setParameter(4, timesheetrow.getTimesheetId().toString());
 		query.setParameter(5, timesheetrow.getWorkPackageId());
 		query.setParameter(6, timesheetrow.getIndex());
+		query.setParameter(7, charge);
+		// only touches the row table, so the cached entities stay valid
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("TimesheetRow");
 		query.executeUpdate();
+
+		rollupManager.addCharge(timesheetrow.getProjectId(), timesheetrow.getWorkPackageId(),
+				timesheetrow.getSum(), charge);
+		refreshTotals(timesheetrow.getTimesheetId());
+		cubeManager.addRow(timesheetrow.getTimesheetId(), timesheetrow);
 	}
 
 	/** update a timesheetrow. */
 	public void merge(TimesheetRow timesheetrow) {
+		TimesheetRow old = find(timesheetrow.getTimesheetId(), timesheetrow.getIndex());
+		float oldHours = 0.0f;
+		double oldCharge = 0.0;
+		String oldProjectId = null;
+		String oldWorkPackageId = null;
+		if (old != null) {
+			oldHours = old.getSum();
+			oldCharge = old.getCharge();
+			oldProjectId = old.getProjectId();
+			oldWorkPackageId = old.getWorkPackageId();
+			cubeManager.removeRow(timesheetrow.getTimesheetId(), old);
+			em.detach(old);
+		}
+
+		double charge = timesheetrow.getSum() * rollupManager.getChargeRate(timesheetrow.getTimesheetId());
 		Query query = em.createNativeQuery(
-				"INSERT INTO TimesheetRow (Notes, Hours, ProjectID, TimesheetID, WorkPackageID, RowIndex)"
-						+ "VALUES (?, ?, ?, ?, ?, ?)"
-						+ "ON DUPLICATE KEY UPDATE Notes = ?, Hours = ?, ProjectID = ?, WorkPackageID = ?");
+				"INSERT INTO TimesheetRow (Notes, Hours, ProjectID, TimesheetID, WorkPackageID, RowIndex, Charge)"
+						+ "VALUES (?, ?, ?, ?, ?, ?, ?)"
+						+ "ON DUPLICATE KEY UPDATE Notes = ?, Hours = ?, ProjectID = ?, WorkPackageID = ?, Charge = ?");
 		query.setParameter(1, timesheetrow.getNotes());
 		query.setParameter(2, timesheetrow.getPackedHours());
 		query.setParameter(3, timesheetrow.getProjectId());
 		query.setParameter(4, timesheetrow.getTimesheetId().toString());
 		query.setParameter(5, timesheetrow.getWorkPackageId());
 		query.setParameter(6, timesheetrow.getIndex());
-		query.setParameter(7, timesheetrow.getNotes());
-		query.setParameter(8, timesheetrow.getPackedHours());
-		query.setParameter(9, timesheetrow.getProjectId());
-		query.setParameter(10, timesheetrow.getWorkPackageId());
+		query.setParameter(7, charge);
+		query.setParameter(8, timesheetrow.getNotes());
+		query.setParameter(9, timesheetrow.getPackedHours());
+		query.setParameter(10, timesheetrow.getProjectId());
+		query.setParameter(11, timesheetrow.getWorkPackageId());
+		query.setParameter(12, charge);
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("TimesheetRow");
+		query.executeUpdate();
+
+		// the old row comes off at what it was charged, not at today's rate
+		if (oldWorkPackageId != null) {
+			rollupManager.addCharge(oldProjectId, oldWorkPackageId, -oldHours, -oldCharge);
+		}
+		rollupManager.addCharge(timesheetrow.getProjectId(), timesheetrow.getWorkPackageId(),
+				timesheetrow.getSum(), charge);
+		refreshTotals(timesheetrow.getTimesheetId());
+		cubeManager.addRow(timesheetrow.getTimesheetId(), timesheetrow);
+	}
+
+	/**
+	 * Inserts or replaces several rows of one timesheet, then applies the
+	 * change in hours of every touched work package to the rollups. A row
+	 * is replaced when it has the index or the work package of a new row,
+	 * the replaced rows are deleted and all rows written with one multi-row
+	 * insert.
+	 *
+	 * @param timesheetId timesheet the rows belong to
+	 * @param rows rows to write, with distinct indexes and work packages
+	 */
+	public void mergeAll(UUID timesheetId, List<TimesheetRow> rows) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		Set<Integer> indexes = new HashSet<>();
+		Set<WorkPackagePK> keys = new HashSet<>();
+		for (TimesheetRow row: rows) {
+			indexes.add(row.getIndex());
+			keys.add(new WorkPackagePK(row.getWorkPackageId(), row.getProjectId()));
+		}
+
+		// hours and charge moved per work package, replaced rows count negative
+		Map<WorkPackagePK, double[]> deltas = new LinkedHashMap<>();
+		List<Integer> replaced = new ArrayList<>();
+		for (TimesheetRow old: getAllForTimesheet(timesheetId)) {
+			if (indexes.contains(old.getIndex())
+					|| keys.contains(new WorkPackagePK(old.getWorkPackageId(), old.getProjectId()))) {
+				addDelta(deltas, old.getProjectId(), old.getWorkPackageId(), -old.getSum(), -old.getCharge());
+				cubeManager.removeRow(timesheetId, old);
+				replaced.add(old.getIndex());
+			}
+			em.detach(old);
+		}
+		if (!replaced.isEmpty()) {
+			StringBuilder in = new StringBuilder("?");
+			for (int i = 1; i < replaced.size(); i++) {
+				in.append(", ?");
+			}
+			Query delete = em.createNativeQuery("DELETE FROM TimesheetRow WHERE TimesheetID = ? AND RowIndex IN ("
+					+ in + ")");
+			delete.setParameter(1, timesheetId.toString());
+			for (int i = 0; i < replaced.size(); i++) {
+				delete.setParameter(i + 2, replaced.get(i));
+			}
+			delete.unwrap(NativeQuery.class).addSynchronizedQuerySpace("TimesheetRow");
+			delete.executeUpdate();
+		}
+
+		float chargeRate = rollupManager.getChargeRate(timesheetId);
+		StringBuilder sql = new StringBuilder("INSERT INTO TimesheetRow (Notes, Hours, ProjectID, TimesheetID,"
+				+ " WorkPackageID, RowIndex, Charge) VALUES ");
+		for (int i = 0; i < rows.size(); i++) {
+			sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?)");
+		}
+		Query query = em.createNativeQuery(sql.toString());
+		int position = 1;
+		for (TimesheetRow row: rows) {
+			double charge = row.getSum() * chargeRate;
+			query.setParameter(position++, row.getNotes());
+			query.setParameter(position++, row.getPackedHours());
+			query.setParameter(position++, row.getProjectId());
+			query.setParameter(position++, timesheetId.toString());
+			query.setParameter(position++, row.getWorkPackageId());
+			query.setParameter(position++, row.getIndex());
+			query.setParameter(position++, charge);
+			addDelta(deltas, row.getProjectId(), row.getWorkPackageId(), row.getSum(), charge);
+			cubeManager.addRow(timesheetId, row);
+		}
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("TimesheetRow");
 		query.executeUpdate();
+
+		for (Map.Entry<WorkPackagePK, double[]> delta: deltas.entrySet()) {
+			rollupManager.addCharge(delta.getKey().getProjectID(), delta.getKey().getId(),
+					delta.getValue()[0], delta.getValue()[1]);
+		}
+		refreshTotals(timesheetId);
+	}
+
+	private static void addDelta(Map<WorkPackagePK, double[]> deltas, String projectId, String workPackageId,
+			double hours, double charge) {
+		double[] total = deltas.computeIfAbsent(new WorkPackagePK(workPackageId, projectId), key -> new double[2]);
+		total[0] += hours;
+		total[1] += charge;
 	}
 
 	/** remove a timesheetrow. */
 	public void remove(TimesheetRow timesheetrow, UUID timesheetId, int rowIndex) {
 		timesheetrow = find(timesheetId, rowIndex);
+		rollupManager.addCharge(timesheetrow.getProjectId(), timesheetrow.getWorkPackageId(),
+				-timesheetrow.getSum(), -timesheetrow.getCharge());
+		cubeManager.removeRow(timesheetId, timesheetrow);
 		em.remove(timesheetrow);
+		em.flush();
+		refreshTotals(timesheetId);
+	}
+
+	/**
+	 * Recomputes the total and daily decihours of a timesheet from its rows.
+	 * A timesheet only has a handful of rows, so summing them again is as
+	 * cheap as applying a delta and can never drift. Daily totals are capped
+	 * at one byte, more than the 24 hours a day can hold.
+	 */
+	private void refreshTotals(UUID timesheetId) {
+		StringBuilder lanes = new StringBuilder();
+		StringBuilder packed = new StringBuilder();
+		for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+			lanes.append(", SUM((Hours >> ").append(d * Byte.SIZE).append(") & 255) AS Day").append(d);
+			packed.append(d == TimesheetRow.FIRST_DAY ? "" : " | ")
+					.append("(LEAST(r.Day").append(d).append(", 255) << ").append(d * Byte.SIZE).append(")");
+		}
+		Query query = em.createNativeQuery("UPDATE Timesheet t LEFT JOIN (SELECT TimesheetID,"
+				+ " SUM(TotalDecihours) AS Total" + lanes + " FROM TimesheetRow WHERE TimesheetID = ?"
+				+ " GROUP BY TimesheetID) r ON r.TimesheetID = t.TimesheetID"
+				+ " SET t.TotalDecihours = COALESCE(r.Total, 0), t.DailyDecihours = COALESCE(" + packed + ", 0)"
+				+ " WHERE t.TimesheetID = ?");
+		query.setParameter(1, timesheetId.toString());
+		query.setParameter(2, timesheetId.toString());
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("Timesheet");
+		query.executeUpdate();
 	}
 
 	public List<TimesheetRow> getAllForTimesheet(UUID timesheetId) {
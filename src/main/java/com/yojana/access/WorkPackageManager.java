@@ -2,20 +2,29 @@ package com.yojana.access;
 
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 
 import javax.ejb.Stateless;
 import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.query.NativeQuery;
+
+import com.yojana.helpers.WorkPackageHelper;
 import com.yojana.model.project.WorkPackage;
+import com.yojana.model.project.WorkPackageImport;
 import com.yojana.model.project.WorkPackagePK;
 import com.yojana.model.timesheet.TimesheetRow;
 
@@ -23,6 +32,9 @@ import com.yojana.model.timesheet.TimesheetRow;
 @Stateless
 public class WorkPackageManager implements Serializable {
 	
+	/** work packages written per insert statement by the bulk import */
+	private static final int IMPORT_BATCH_SIZE = 500;
+	
 	private final String PREFIX = "WP";
     private final String SEPERATOR = ".";
 
@@ -33,6 +45,9 @@ public class WorkPackageManager implements Serializable {
 	
 	@PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
 	
+	@Inject
+	private ProjectVersionTracker versionTracker;
+	
 	/** find an employee with id. */
 	public WorkPackage find(WorkPackagePK key) {
         return em.find(WorkPackage.class, key);
@@ -42,128 +57,320 @@ public class WorkPackageManager implements Serializable {
 	@Transactional
 	public void persist(WorkPackage workPackage) {
 		String id;
+		String projectId = workPackage.getWorkPackagePk().getProjectID();
 		if (workPackage.getParentWPId() == null || workPackage.getParentWPId().isBlank()) {
-        	Set<WorkPackage> topLevelWps = getAllWithHierarchyLevel(workPackage.getWorkPackagePk().getProjectID(),
-        			0);
-        	id = PREFIX + Integer.toString(topLevelWps.size() + 1);
+        	id = PREFIX + reserveChildNumbers(projectId, "", 1);
         } else {
-        	Set<WorkPackage> children = getChildWPs(workPackage.getWorkPackagePk().getProjectID(),
-        			workPackage.getParentWPId());
-        	id = workPackage.getParentWPId() + SEPERATOR + (children.size() + 1);
+        	id = workPackage.getParentWPId() + SEPERATOR + reserveChildNumbers(projectId, workPackage.getParentWPId(), 1);
         }
 		
+		// throws if the id does not fit a sort key, the reserved number then rolls back with the transaction
+		WorkPackageHelper.getSortKey(id);
 		workPackage.getWorkPackagePk().setId(id);
 		if (!(workPackage.getParentWPId() == null || workPackage.getParentWPId().isBlank())) {
-			WorkPackage parent = find(new WorkPackagePK(workPackage.getParentWPId(), 
-					workPackage.getWorkPackagePk().getProjectID()));
-			parent.setAllocatedBudget(parent.getAllocatedBudget() + workPackage.getBudget());
-			parent.setAllocatedInitialEstimate(parent.getAllocatedInitialEstimate() +
-					 workPackage.getInitialEstimate());
-			parent.setLowestLevel(false);
-			workPackage.setParentWP(parent);
-			workPackage.setHierarchyLevel(parent.getHierarchyLevel() + 1);
-			em.merge(parent);
+			addAllocation(new WorkPackagePK(workPackage.getParentWPId(), projectId),
+					valueOf(workPackage.getBudget()), valueOf(workPackage.getInitialEstimate()), false);
+			workPackage.setHierarchyLevel(WorkPackageHelper.getHierarchyLevel(id));
 		}
         em.persist(workPackage);
+        versionTracker.changed(projectId);
     }
 	
+	/**
+	 * Adds to the allocated budget and initial estimate of a work package in
+	 * one UPDATE, so concurrent changes to sibling work packages all land
+	 * instead of overwriting each other. The version is bumped so a stale
+	 * copy of the parent can no longer be merged over the new allocation.
+	 *
+	 * @param lowestLevel new lowest level flag, null to leave it as it is
+	 */
+	private void addAllocation(WorkPackagePK key, double budget, double initialEstimate, Boolean lowestLevel) {
+		String jpql = "update versioned WorkPackage w"
+				+ " set w.allocatedBudget = w.allocatedBudget + :budget,"
+				+ " w.allocatedInitialEstimate = w.allocatedInitialEstimate + :initialEstimate";
+		if (lowestLevel != null) {
+			jpql += ", w.isLowestLevel = :lowestLevel";
+		}
+		Query query = em.createQuery(jpql + " where w.workPackagePk.id = :id and w.workPackagePk.projectID = :projectId");
+		query.setParameter("budget", budget);
+		query.setParameter("initialEstimate", initialEstimate);
+		if (lowestLevel != null) {
+			query.setParameter("lowestLevel", lowestLevel);
+		}
+		query.setParameter("id", key.getId());
+		query.setParameter("projectId", key.getProjectID());
+		query.executeUpdate();
+	}
+	
+	private static double valueOf(Double value) {
+		return value == null ? 0.0 : value;
+	}
+	
+	/**
+	 * Imports whole work package trees under the top level of a project.
+	 * Ids and parent allocations are worked out in memory, then the work
+	 * packages and the id counters of their parents are written with
+	 * multi-row inserts.
+	 *
+	 * @return the imported work packages, parents before their children
+	 */
+	@Transactional
+	public List<WorkPackage> importTree(String projectId, List<WorkPackageImport> roots) {
+		int firstNumber = reserveChildNumbers(projectId, "", roots.size());
+		List<WorkPackage> wps = WorkPackageHelper.flattenImport(projectId, roots, firstNumber);
+
+		// children handed out under every imported parent
+		Map<String, Integer> lastChild = new HashMap<>();
+		for (WorkPackage wp: wps) {
+			if (wp.getParentWPId() != null) {
+				Integer count = lastChild.get(wp.getParentWPId());
+				lastChild.put(wp.getParentWPId(), count == null ? 1 : count + 1);
+			}
+		}
+
+		for (int from = 0; from < wps.size(); from += IMPORT_BATCH_SIZE) {
+			insertAll(wps.subList(from, Math.min(from + IMPORT_BATCH_SIZE, wps.size())));
+		}
+		List<Map.Entry<String, Integer>> counters = new ArrayList<>(lastChild.entrySet());
+		for (int from = 0; from < counters.size(); from += IMPORT_BATCH_SIZE) {
+			insertCounters(projectId, counters.subList(from, Math.min(from + IMPORT_BATCH_SIZE, counters.size())));
+		}
+		versionTracker.changed(projectId);
+		return wps;
+	}
+	
+	/* inserts work packages with one statement, parents must come before their children */
+	private void insertAll(List<WorkPackage> wps) {
+		StringBuilder sql = new StringBuilder("INSERT INTO WorkPackage (WorkPackageID, ProjectID,"
+				+ " ParentWorkPackageID, ResponsibleEngineerID, WorkPackageName, Descrip, IsLowestLevel, Budget,"
+				+ " AllocatedBudget, InitialEstimate, AllocatedInitialEstimate, DueAt, Stat, HierarchyLevel, SortKey)"
+				+ " VALUES ");
+		for (int i = 0; i < wps.size(); i++) {
+			sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		}
+		Query query = em.createNativeQuery(sql.toString());
+		int position = 1;
+		for (WorkPackage wp: wps) {
+			query.setParameter(position++, wp.getWorkPackagePk().getId());
+			query.setParameter(position++, wp.getWorkPackagePk().getProjectID());
+			query.setParameter(position++, wp.getParentWPId());
+			query.setParameter(position++, wp.getResponsibleEngineerId());
+			query.setParameter(position++, wp.getWorkPackageName());
+			query.setParameter(position++, wp.getDescription());
+			query.setParameter(position++, wp.isLowestLevel());
+			query.setParameter(position++, wp.getBudget());
+			query.setParameter(position++, wp.getAllocatedBudget());
+			query.setParameter(position++, wp.getInitialEstimate());
+			query.setParameter(position++, wp.getAllocatedInitialEstimate());
+			query.setParameter(position++, wp.getDueAt() == null ? null : new java.sql.Date(wp.getDueAt().getTime()));
+			query.setParameter(position++, wp.getStatus().name());
+			query.setParameter(position++, wp.getHierarchyLevel());
+			query.setParameter(position++, wp.getSortKey());
+		}
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("WorkPackage");
+		query.executeUpdate();
+	}
+	
+	/* starts the id counters of newly imported parents */
+	private void insertCounters(String projectId, List<Map.Entry<String, Integer>> counters) {
+		StringBuilder sql = new StringBuilder("INSERT INTO WorkPackageSequence"
+				+ " (ProjectID, ParentWorkPackageID, LastChild) VALUES ");
+		for (int i = 0; i < counters.size(); i++) {
+			sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+		}
+		Query query = em.createNativeQuery(sql.toString());
+		int position = 1;
+		for (Map.Entry<String, Integer> counter: counters) {
+			query.setParameter(position++, projectId);
+			query.setParameter(position++, counter.getKey());
+			query.setParameter(position++, counter.getValue());
+		}
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("WorkPackageSequence");
+		query.executeUpdate();
+	}
+	
+	/**
+	 * Reserves the next child numbers under a parent and returns the first
+	 * one. The upsert locks the counter row until the transaction ends, so
+	 * concurrent inserts under the same parent queue up instead of picking
+	 * the same id. A parent without a counter yet, one whose children were
+	 * added before the counters existed, starts after its highest child.
+	 *
+	 * @param parentId parent work package, empty for the top level
+	 * @param count    number of children to reserve
+	 */
+	private int reserveChildNumbers(String projectId, String parentId, int count) {
+		// the child number is the last part of the id, after the prefix or the last separator
+		Query increment = em.createNativeQuery("INSERT INTO WorkPackageSequence"
+				+ " (ProjectID, ParentWorkPackageID, LastChild)"
+				+ " SELECT ?, ?, COALESCE(MAX(CAST(SUBSTRING_INDEX(SUBSTRING(WorkPackageID, "
+				+ (PREFIX.length() + 1) + "), '" + SEPERATOR + "', -1) AS UNSIGNED)), 0) + ?"
+				+ " FROM WorkPackage WHERE ProjectID = ? AND COALESCE(ParentWorkPackageID, '') = ?"
+				+ " ON DUPLICATE KEY UPDATE LastChild = LastChild + ?");
+		increment.setParameter(1, projectId);
+		increment.setParameter(2, parentId);
+		increment.setParameter(3, count);
+		increment.setParameter(4, projectId);
+		increment.setParameter(5, parentId);
+		increment.setParameter(6, count);
+		increment.unwrap(NativeQuery.class).addSynchronizedQuerySpace("WorkPackageSequence");
+		increment.executeUpdate();
+
+		Query current = em.createNativeQuery("SELECT LastChild FROM WorkPackageSequence"
+				+ " WHERE ProjectID = ? AND ParentWorkPackageID = ?");
+		current.setParameter(1, projectId);
+		current.setParameter(2, parentId);
+		return ((Number) current.getSingleResult()).intValue() - count + 1;
+	}
+	
 	/** update an employee. */
 	@Transactional
 	public void merge(WorkPackage workPackage) {
 		WorkPackage old = find(workPackage.getWorkPackagePk());
 		if (workPackage.getParentWPId() != null) {
-			WorkPackage parent = find(new WorkPackagePK(workPackage.getParentWPId(), 
-					workPackage.getWorkPackagePk().getProjectID()));
-			double parentBudgetAllocation = parent.getAllocatedBudget() - old.getBudget() + workPackage.getBudget();
-			double parentEstimateAllocation = parent.getAllocatedInitialEstimate() - old.getInitialEstimate() + workPackage.getInitialEstimate();
-			parent.setAllocatedBudget(parentBudgetAllocation);
-			parent.setAllocatedInitialEstimate(parentEstimateAllocation);
-			parent.setLowestLevel(false);
-			workPackage.setParentWP(parent);
-			em.merge(parent);
+			addAllocation(new WorkPackagePK(workPackage.getParentWPId(), workPackage.getWorkPackagePk().getProjectID()),
+					valueOf(workPackage.getBudget()) - valueOf(old.getBudget()),
+					valueOf(workPackage.getInitialEstimate()) - valueOf(old.getInitialEstimate()), false);
 		}
         em.merge(workPackage);
+        em.getEntityManagerFactory().getCache().evict(WorkPackage.class, workPackage.getWorkPackagePk());
+        versionTracker.changed(workPackage.getWorkPackagePk().getProjectID());
     }
 	
 	/** remove an employee. */
 	@Transactional
 	public void remove(WorkPackage workPackage, WorkPackagePK key) {
         if (workPackage.getParentWPId() != null) {
-			WorkPackage parent = find(new WorkPackagePK(workPackage.getParentWPId(), 
-					workPackage.getWorkPackagePk().getProjectID()));
-			parent.setAllocatedBudget(parent.getAllocatedBudget() + workPackage.getAllocatedBudget());
-			parent.setInitialEstimate(parent.getInitialEstimate() + workPackage.getInitialEstimate());
-			if (workPackage.isLowestLevel()) {
-				parent.setLowestLevel(true);
-			}
-			em.merge(parent);
+			addAllocation(new WorkPackagePK(workPackage.getParentWPId(), workPackage.getWorkPackagePk().getProjectID()),
+					-valueOf(workPackage.getBudget()), -valueOf(workPackage.getInitialEstimate()),
+					Boolean.TRUE.equals(workPackage.isLowestLevel()) ? Boolean.TRUE : null);
 		}
         em.remove(workPackage);
+        em.getEntityManagerFactory().getCache().evict(WorkPackage.class, workPackage.getWorkPackagePk());
+        versionTracker.changed(workPackage.getWorkPackagePk().getProjectID());
     }
 	
-	public Set<WorkPackage> getAll(String projectId) {       
-		TypedQuery<WorkPackage> query = em.createQuery("select w from WorkPackage w where w.workPackagePk.projectID = :projectId",
+	/**
+	 * Looks up which of the given work package keys exist, in one query.
+	 *
+	 * @param keys work package keys to check
+	 * @return the keys that exist
+	 */
+	public Set<WorkPackagePK> findExisting(Collection<WorkPackagePK> keys) {
+		Set<WorkPackagePK> existing = new HashSet<>();
+		if (keys.isEmpty()) {
+			return existing;
+		}
+		StringBuilder sql = new StringBuilder("SELECT ProjectID, WorkPackageID FROM WorkPackage"
+				+ " WHERE (ProjectID, WorkPackageID) IN (");
+		for (int i = 0; i < keys.size(); i++) {
+			sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+		}
+		sql.append(")");
+		Query query = em.createNativeQuery(sql.toString());
+		int position = 1;
+		for (WorkPackagePK key: keys) {
+			query.setParameter(position++, key.getProjectID());
+			query.setParameter(position++, key.getId());
+		}
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = query.getResultList();
+		for (Object[] row: rows) {
+			existing.add(new WorkPackagePK((String) row[1], (String) row[0]));
+		}
+		return existing;
+	}
+	
+	public List<WorkPackage> getAll(String projectId) {       
+		TypedQuery<WorkPackage> query = em.createQuery("select w from WorkPackage w where w.workPackagePk.projectID = :projectId"
+				+ " order by w.sortKey",
                 WorkPackage.class); 
+		query.setHint(QueryHints.HINT_CACHEABLE, true);
 		query.setParameter("projectId", projectId);
-        List<WorkPackage> workPackages = query.getResultList();
-        return new TreeSet<WorkPackage>(workPackages);
+        return query.getResultList();
     }
 	
-	public Set<WorkPackage> getAllWithHierarchyLevel(String projectId, int hierarchyLevel) {       
+	public List<WorkPackage> getAllWithHierarchyLevel(String projectId, int hierarchyLevel) {       
 		TypedQuery<WorkPackage> query = em.createQuery("select w from WorkPackage w where w.workPackagePk.projectID = :projectId"
-				+ " and w.hierarchyLevel = :hierarchyLevel", WorkPackage.class); 
+				+ " and w.hierarchyLevel = :hierarchyLevel order by w.sortKey", WorkPackage.class); 
 		query.setParameter("projectId", projectId);
 		query.setParameter("hierarchyLevel", hierarchyLevel);
-        List<WorkPackage> workPackages = query.getResultList();
-        return new TreeSet<WorkPackage>(workPackages);
+        return query.getResultList();
     }
 	
-	public Set<WorkPackage> getChildWPs(String projectId, String parentId) {       
+	public List<WorkPackage> getChildWPs(String projectId, String parentId) {       
 		TypedQuery<WorkPackage> query = em.createQuery("select w from WorkPackage w where w.workPackagePk.projectID = :projectId"
-				+ " and w.parentWPId = :parentId", WorkPackage.class); 
+				+ " and w.parentWPId = :parentId order by w.sortKey", WorkPackage.class); 
 		query.setParameter("projectId", projectId);
 		query.setParameter("parentId", parentId);
-        List<WorkPackage> workPackages = query.getResultList();
-        return new TreeSet<WorkPackage>(workPackages);
+        return query.getResultList();
     }
 	
-	public Set<WorkPackage> getAllForResponsibleEngineer(int empId) {       
-		TypedQuery<WorkPackage> query = em.createQuery("select w from WorkPackage w where w.responsibleEngineerId = :id",
+	/**
+	 * A work package and all of its descendants, in WBS order. The sort key
+	 * of every descendant starts with the key of the work package, so this
+	 * is a single range scan of the (ProjectID, SortKey) index.
+	 *
+	 * @param maxDepth levels below the work package to include, null for all
+	 */
+	public List<WorkPackage> getSubtree(String projectId, String id, Integer maxDepth) {
+		String jpql = "select w from WorkPackage w where w.workPackagePk.projectID = :projectId"
+				+ " and w.sortKey like :prefix";
+		if (maxDepth != null) {
+			jpql += " and w.hierarchyLevel <= :maxLevel";
+		}
+		TypedQuery<WorkPackage> query = em.createQuery(jpql + " order by w.sortKey", WorkPackage.class);
+		query.setParameter("projectId", projectId);
+		query.setParameter("prefix", WorkPackageHelper.getSortKey(id) + "%");
+		if (maxDepth != null) {
+			query.setParameter("maxLevel", WorkPackageHelper.getHierarchyLevel(id) + maxDepth);
+		}
+		return query.getResultList();
+	}
+	
+	/** the ancestors of a work package, top level first. */
+	public List<WorkPackage> getAncestors(String projectId, String id) {
+		List<String> ids = WorkPackageHelper.getPathIds(id);
+		ids.remove(0);
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		TypedQuery<WorkPackage> query = em.createQuery("select w from WorkPackage w where w.workPackagePk.projectID = :projectId"
+				+ " and w.workPackagePk.id in :ids order by w.sortKey", WorkPackage.class);
+		query.setParameter("projectId", projectId);
+		query.setParameter("ids", ids);
+		return query.getResultList();
+	}
+	
+	public List<WorkPackage> getAllForResponsibleEngineer(int empId) {       
+		TypedQuery<WorkPackage> query = em.createQuery("select w from WorkPackage w where w.responsibleEngineerId = :id"
+				+ " order by w.workPackagePk.projectID, w.sortKey",
                 WorkPackage.class); 
 		query.setParameter("id", empId);
-        List<WorkPackage> workPackages = query.getResultList();
-        return new TreeSet<WorkPackage>(workPackages);
+        return query.getResultList();
     }
 	
+	/** total hours charged to a work package. */
 	public double getCharge(String projectId, String id) {
-		TypedQuery<TimesheetRow> query = em.createQuery("select tr from TimesheetRow tr where tr.workPackageId = :id and tr.projectId = :projectId", TimesheetRow.class);
+		TypedQuery<Long> query = em.createQuery("select coalesce(sum(tr.totalDecihours), 0) from TimesheetRow tr"
+				+ " where tr.workPackageId = :id and tr.projectId = :projectId", Long.class);
 		query.setParameter("id", id);
 		query.setParameter("projectId", projectId);
 		
-		List<TimesheetRow> rows = query.getResultList();
-		
-		double charges = 0;
-		for (TimesheetRow row: rows) {
-			charges += row.getSum();
-		}
-		return charges;
+		return query.getSingleResult() / (double) TimesheetRow.BASE10;
 	}
 	
+	/** hours charged to a work package, per week. */
 	public Map<LocalDate, Double> getWeeklyCharges(String projectId, String id) {
-		TypedQuery<TimesheetRow> query = em.createQuery("select tr from TimesheetRow tr JOIN FETCH tr.timesheet t where tr.workPackageId = :id and tr.projectId = :projectId", TimesheetRow.class);
+		TypedQuery<Object[]> query = em.createQuery("select t.endWeek, sum(tr.totalDecihours) from TimesheetRow tr"
+				+ " JOIN tr.timesheet t where tr.workPackageId = :id and tr.projectId = :projectId"
+				+ " GROUP BY t.endWeek", Object[].class);
 		query.setParameter("id", id);
 		query.setParameter("projectId", projectId);
 		
-		List<TimesheetRow> rows = query.getResultList();
-		
 		Map<LocalDate, Double> weeklyCharges = new HashMap<LocalDate, Double>();
-		for (TimesheetRow row: rows) {
-			LocalDate key = row.getTimesheet().getEndWeek();
-			if (weeklyCharges.containsKey(key)) {
-				weeklyCharges.put(key, weeklyCharges.get(key) + row.getSum());
-			} else {
-				weeklyCharges.put(key, (double) row.getSum());
-			}
+		for (Object[] row: query.getResultList()) {
+			weeklyCharges.put((LocalDate) row[0], ((Number) row[1]).doubleValue() / TimesheetRow.BASE10);
 		}
 		return weeklyCharges;
 	}
@@ -0,0 +1,164 @@
+package com.yojana.access;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.UUID;
+
+import javax.ejb.Stateless;
+import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import org.hibernate.query.NativeQuery;
+
+import com.yojana.helpers.WorkPackageHelper;
+import com.yojana.model.estimate.EstimateType;
+import com.yojana.model.project.WorkPackagePK;
+import com.yojana.model.project.WorkPackageRollup;
+
+/**
+ * Maintains the materialized WorkPackageRollup rows.
+ * Every change is applied as a delta to the work package and all of
+ * its ancestors in a single statement.
+ *
+ * @author yogeshverma
+ */
+@Dependent
+@Stateless
+public class WorkPackageRollupManager implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 2981470348313052113L;
+
+	@PersistenceContext(unitName="comp4911-pms-rest-jpa") EntityManager em;
+
+	@Inject
+	private ProjectVersionTracker versionTracker;
+
+	/** find the rollup of a work package. */
+	public WorkPackageRollup find(WorkPackagePK key) {
+		return em.find(WorkPackageRollup.class, key);
+	}
+
+	/** Charge rate of the owner of a timesheet. */
+	public float getChargeRate(UUID timesheetId) {
+		Query query = em.createQuery("select pg.chargeRate from Timesheet t"
+				+ " JOIN t.employee e JOIN e.labourGrade pg where t.id = :timesheetId");
+		query.setParameter("timesheetId", timesheetId);
+		List<?> rates = query.getResultList();
+		return rates.isEmpty() ? 0.0f : ((Number) rates.get(0)).floatValue();
+	}
+
+	/**
+	 * adds hours charged to a work package and what they cost, negative to
+	 * take back what a row added before.
+	 */
+	public void addCharge(String projectId, String workPackageId, double hours, double charge) {
+		if (hours == 0 && charge == 0) {
+			return;
+		}
+		apply(projectId, workPackageId, hours, charge, 0.0, 0.0);
+	}
+
+	/**
+	 * Re-reads the latest planned and weekly estimates of a work package
+	 * and applies the difference to the rollup. The difference is taken
+	 * against the estimates of the work package itself, its rollup also
+	 * holds those of its descendants.
+	 */
+	public void refreshEstimates(String projectId, String workPackageId) {
+		double planned = getLatestEstimateToComplete(projectId, workPackageId, EstimateType.planned);
+		double estimateToComplete = getLatestEstimateToComplete(projectId, workPackageId, EstimateType.weekly);
+
+		// the row stays locked until commit, so concurrent refreshes see each other's values
+		Query create = em.createNativeQuery("INSERT INTO WorkPackageRollup (ProjectID, WorkPackageID)"
+				+ " VALUES (?, ?) ON DUPLICATE KEY UPDATE ProjectID = ProjectID");
+		create.setParameter(1, projectId);
+		create.setParameter(2, workPackageId);
+		create.unwrap(NativeQuery.class).addSynchronizedQuerySpace("WorkPackageRollup");
+		create.executeUpdate();
+		Query own = em.createNativeQuery("SELECT OwnPlanned, OwnEstimateToComplete FROM WorkPackageRollup"
+				+ " WHERE ProjectID = ? AND WorkPackageID = ? FOR UPDATE");
+		own.setParameter(1, projectId);
+		own.setParameter(2, workPackageId);
+		Object[] current = (Object[]) own.getSingleResult();
+
+		double plannedDelta = planned - ((Number) current[0]).doubleValue();
+		double estimateDelta = estimateToComplete - ((Number) current[1]).doubleValue();
+		if (plannedDelta == 0 && estimateDelta == 0) {
+			return;
+		}
+		apply(projectId, workPackageId, 0.0, 0.0, plannedDelta, estimateDelta);
+
+		Query update = em.createNativeQuery("UPDATE WorkPackageRollup SET OwnPlanned = ?, OwnEstimateToComplete = ?"
+				+ " WHERE ProjectID = ? AND WorkPackageID = ?");
+		update.setParameter(1, planned);
+		update.setParameter(2, estimateToComplete);
+		update.setParameter(3, projectId);
+		update.setParameter(4, workPackageId);
+		update.unwrap(NativeQuery.class).addSynchronizedQuerySpace("WorkPackageRollup");
+		update.executeUpdate();
+	}
+
+	/*
+	 * estimate to complete of the estimate for the latest week, the last one
+	 * created if there are several, read off the IXEstimateLatest index
+	 */
+	private double getLatestEstimateToComplete(String projectId, String workPackageId, EstimateType type) {
+		Query query = em.createQuery("select e.estimateToComplete from Estimate e where"
+				+ " e.projectId = :projectId"
+				+ " and e.workPackageId = :workPackageId"
+				+ " and e.type = :type"
+				+ " ORDER BY e.forWeek DESC, e.audit.createdAt DESC");
+		query.setParameter("projectId", projectId);
+		query.setParameter("workPackageId", workPackageId);
+		query.setParameter("type", type);
+		query.setMaxResults(1);
+		List<?> values = query.getResultList();
+		return values.isEmpty() || values.get(0) == null ? 0.0 : ((Number) values.get(0)).doubleValue();
+	}
+
+	/** get all rollups for a project. */
+	public List<WorkPackageRollup> getAll(String projectId) {
+		return em.createQuery("select r from WorkPackageRollup r where r.workPackagePk.projectID = :projectId",
+				WorkPackageRollup.class)
+				.setParameter("projectId", projectId)
+				.getResultList();
+	}
+
+	/* upserts the deltas for the work package and all of its ancestors */
+	private void apply(String projectId, String workPackageId, double hours, double charge,
+			double planned, double estimateToComplete) {
+		List<String> ids = WorkPackageHelper.getPathIds(workPackageId);
+		StringBuilder sql = new StringBuilder("INSERT INTO WorkPackageRollup (ProjectID, WorkPackageID,"
+				+ " ChargeHours, Charge, Planned, EstimateToComplete, EstimateAtCompletion) VALUES ");
+		for (int i = 0; i < ids.size(); i++) {
+			sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?)");
+		}
+		sql.append(" ON DUPLICATE KEY UPDATE ChargeHours = ChargeHours + VALUES(ChargeHours),"
+				+ " Charge = Charge + VALUES(Charge),"
+				+ " Planned = Planned + VALUES(Planned),"
+				+ " EstimateToComplete = EstimateToComplete + VALUES(EstimateToComplete),"
+				+ " EstimateAtCompletion = Charge + EstimateToComplete");
+
+		Query query = em.createNativeQuery(sql.toString());
+		int position = 1;
+		for (String id: ids) {
+			query.setParameter(position++, projectId);
+			query.setParameter(position++, id);
+			query.setParameter(position++, hours);
+			query.setParameter(position++, charge);
+			query.setParameter(position++, planned);
+			query.setParameter(position++, estimateToComplete);
+			query.setParameter(position++, charge + estimateToComplete);
+		}
+		// only touches the rollup table, so the cached entities stay valid
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("WorkPackageRollup");
+		query.executeUpdate();
+		versionTracker.changed(projectId);
+	}
+}
@@ -1,21 +1,33 @@
 package com.yojana.helpers;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
 
 public class JWTHelper {
 	
-	private Algorithm algorithm = Algorithm.HMAC512("secret");
+	private static final Algorithm ALGORITHM = Algorithm.HMAC512("secret");
+	
+	// JWTVerifier is immutable and thread safe, so one instance serves every request
+	private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).acceptLeeway(10000).build();
 
 	public String encrypt(String username) {
-		String token = JWT.create().withClaim("employee", username).sign(algorithm);
+		String token = JWT.create().withClaim("employee", username).sign(ALGORITHM);
 		return token;
 	}
 
 	public String validate(String token) {
-		DecodedJWT decoded = JWT.require(algorithm).acceptLeeway(10000).build().verify(token);
+		return getUsername(verify(token));
+	}
+
+	// Checks the signature and expiry of a token, throws if it was not issued by the server
+	public DecodedJWT verify(String token) {
+		return VERIFIER.verify(token);
+	}
+
+	public String getUsername(DecodedJWT decoded) {
 		return decoded.getClaim("employee").asString();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package com.yojana.helpers;
+
+import com.yojana.model.timesheet.TimesheetRow;
+
+/**
+ * Operations on a week of charges packed into a long, one byte per day in
+ * decihours with Saturday in the lowest byte and the top byte zero. All
+ * days are handled at once with plain long arithmetic, so nothing is
+ * allocated and raw PackedHours or DailyDecihours column values can be
+ * used directly. Like the per-day loops they replace, sums and checks only
+ * look at the seven day bytes, isValid() is what rejects a set top byte.
+ */
+public class PackedHoursHelper {
+
+	/** low byte of every 16 bit lane */
+	private static final long EVEN_BYTES = 0x00FF00FF00FF00FFL;
+
+	/** high bit of every 16 bit lane */
+	private static final long LANE_SIGN = 0x8000800080008000L;
+
+	/** one in every 16 bit lane */
+	private static final long LANE_ONES = 0x0001000100010001L;
+
+	/** the seven day bytes of a week */
+	private static final long WEEK = 0x00FFFFFFFFFFFFFFL;
+
+	/**
+	 * Extracts the decihours of one day.
+	 *
+	 * @param packed packed week
+	 * @param d      the day number (0 = Saturday .. 6 = Friday)
+	 * @return decihours for that day
+	 */
+	public static int getDecihour(long packed, int d) {
+		return (int) (packed >>> (d * Byte.SIZE)) & 0xFF;
+	}
+
+	/**
+	 * Replaces the decihours of one day.
+	 *
+	 * @param packed   packed week
+	 * @param d        the day number (0 = Saturday .. 6 = Friday)
+	 * @param decihour new charge, 0 .. 255
+	 * @return the packed week with that day replaced
+	 */
+	public static long setDecihour(long packed, int d, int decihour) {
+		final int shift = d * Byte.SIZE;
+		return packed & ~(0xFFL << shift) | (long) decihour << shift;
+	}
+
+	/**
+	 * Adds up the decihours of all days.
+	 *
+	 * @param packed packed week
+	 * @return total decihours
+	 */
+	public static int sum(long packed) {
+		// pairs of days into four 16 bit lanes of at most 510
+		final long pairs = (packed & EVEN_BYTES) + ((packed & WEEK) >>> Byte.SIZE & EVEN_BYTES);
+		// the multiply gathers the sum of all lanes into the top lane
+		return (int) ((pairs * LANE_ONES) >>> 48);
+	}
+
+	/**
+	 * Adds two weeks day by day. A day whose total goes over a day's worth of
+	 * decihours is capped at DECIHOURS_IN_DAY, use exceeds() on the inputs
+	 * first where that should be an error instead.
+	 *
+	 * @param a packed week
+	 * @param b packed week
+	 * @return the packed day by day sum
+	 */
+	public static long add(long a, long b) {
+		return addLanes(a & EVEN_BYTES, b & EVEN_BYTES)
+				| addLanes((a & WEEK) >>> Byte.SIZE & EVEN_BYTES, (b & WEEK) >>> Byte.SIZE & EVEN_BYTES) << Byte.SIZE;
+	}
+
+	/**
+	 * Checks whether the day by day sum of two weeks has a day over a day's
+	 * worth of decihours.
+	 *
+	 * @param a packed week
+	 * @param b packed week
+	 * @return true if add() would have to cap a day
+	 */
+	public static boolean addExceeds(long a, long b) {
+		final long limit = overLimit(TimesheetRow.DECIHOURS_IN_DAY);
+		final long even = (a & EVEN_BYTES) + (b & EVEN_BYTES);
+		final long odd = ((a & WEEK) >>> Byte.SIZE & EVEN_BYTES) + ((b & WEEK) >>> Byte.SIZE & EVEN_BYTES);
+		return ((even + limit | odd + limit) & LANE_SIGN) != 0;
+	}
+
+	/**
+	 * Checks whether any day is over a limit.
+	 *
+	 * @param packed packed week
+	 * @param limit  highest allowed decihours, 0 .. 255
+	 * @return true if a day has more than limit decihours
+	 */
+	public static boolean exceeds(long packed, int limit) {
+		final long over = overLimit(limit);
+		// a lane holds at most 255, so adding over only reaches the sign bit when above limit
+		final long even = (packed & EVEN_BYTES) + over;
+		final long odd = ((packed & WEEK) >>> Byte.SIZE & EVEN_BYTES) + over;
+		return ((even | odd) & LANE_SIGN) != 0;
+	}
+
+	/**
+	 * Checks that a value is a properly formed week: the top byte is clear and
+	 * no day is over a day's worth of decihours.
+	 *
+	 * @param packed packed week
+	 * @return true if the value can be stored as packed hours
+	 */
+	public static boolean isValid(long packed) {
+		return (packed & ~WEEK) == 0 && !exceeds(packed, TimesheetRow.DECIHOURS_IN_DAY);
+	}
+
+	/* per 16 bit lane, the amount that carries into the sign bit when added to a value above limit */
+	private static long overLimit(int limit) {
+		return (0x8000L - (limit + 1)) * LANE_ONES;
+	}
+
+	/* adds two sets of four 16 bit lanes, each lane capped at a day's worth of decihours */
+	private static long addLanes(long a, long b) {
+		final long sum = a + b;
+		// sign bit set in every lane over the cap, widened into a mask of the whole lane
+		final long over = (sum + overLimit(TimesheetRow.DECIHOURS_IN_DAY)) & LANE_SIGN;
+		final long mask = (over >>> 15) * 0xFFFFL;
+		return sum & ~mask | TimesheetRow.DECIHOURS_IN_DAY * LANE_ONES & mask;
+	}
+}
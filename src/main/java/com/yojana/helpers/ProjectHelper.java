@@ -10,6 +10,10 @@ public class ProjectHelper {
 		if (current.getInitialEstimate() != null) {
 			old.setInitialEstimate(current.getInitialEstimate());
 		}
+		// the version the client last read, so a stale edit is rejected
+		if (current.getVersion() != null) {
+			old.setVersion(current.getVersion());
+		}
 		return old;
 	}
 }
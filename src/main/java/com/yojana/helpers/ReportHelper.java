@@ -0,0 +1,62 @@
+package com.yojana.helpers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.yojana.model.report.WorkPackageReport;
+
+public class ReportHelper {
+
+	/**
+	 * Rolls the values of every work package up into all of its ancestors.
+	 * Nodes are visited once in post-order (every child before its parent),
+	 * so each parent is complete by the time it is added to its own parent.
+	 *
+	 * @param report lines keyed by work package id, holding each work package's own values
+	 */
+	public static void aggregate(Map<String, WorkPackageReport> report) {
+		Map<String, List<WorkPackageReport>> children = new HashMap<>();
+		Deque<WorkPackageReport> stack = new ArrayDeque<>();
+		for (WorkPackageReport line: report.values()) {
+			String parentId = line.getParentId();
+			if (parentId == null || !report.containsKey(parentId)) {
+				stack.push(line);
+			} else {
+				List<WorkPackageReport> siblings = children.get(parentId);
+				if (siblings == null) {
+					siblings = new ArrayList<>();
+					children.put(parentId, siblings);
+				}
+				siblings.add(line);
+			}
+		}
+
+		// pre-order walk, reversed below into post-order
+		List<WorkPackageReport> order = new ArrayList<>(report.size());
+		while (!stack.isEmpty()) {
+			WorkPackageReport line = stack.pop();
+			order.add(line);
+			List<WorkPackageReport> lineChildren = children.get(line.getId());
+			if (lineChildren != null) {
+				for (WorkPackageReport child: lineChildren) {
+					stack.push(child);
+				}
+			}
+		}
+
+		for (int i = order.size() - 1; i >= 0; i--) {
+			WorkPackageReport line = order.get(i);
+			if (line.getParentId() == null) {
+				continue;
+			}
+			WorkPackageReport parent = report.get(line.getParentId());
+			if (parent != null) {
+				parent.add(line);
+			}
+		}
+	}
+}
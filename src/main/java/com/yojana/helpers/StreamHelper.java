@@ -0,0 +1,34 @@
+package com.yojana.helpers;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+public class StreamHelper {
+
+	/** rows read from the driver per round trip, and entities kept managed at a time */
+	public static final int BATCH_SIZE = 100;
+
+	/**
+	 * Hands every result of a query to an action as it is read, clearing the
+	 * persistence context after every batch so the memory used stays flat.
+	 * Must be called inside a transaction.
+	 */
+	public static <T> void forEach(EntityManager em, TypedQuery<T> query, Consumer<? super T> action) {
+		query.setHint("org.hibernate.fetchSize", BATCH_SIZE);
+		query.setHint("org.hibernate.readOnly", true);
+		try (Stream<T> results = query.getResultStream()) {
+			int count = 0;
+			Iterator<T> it = results.iterator();
+			while (it.hasNext()) {
+				action.accept(it.next());
+				if (++count % BATCH_SIZE == 0) {
+					em.clear();
+				}
+			}
+		}
+	}
+}
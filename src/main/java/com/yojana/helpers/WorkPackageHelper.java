@@ -1,8 +1,36 @@
 package com.yojana.helpers;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import com.yojana.model.project.WorkPackage;
+import com.yojana.model.project.WorkPackageImport;
+import com.yojana.model.project.WorkPackagePK;
+import com.yojana.model.project.WorkPackageStatus;
 
 public class WorkPackageHelper {
+
+	private static final char SEPERATOR = '.';
+
+	private static final String PREFIX = "WP";
+
+	/** columns of an imported CSV line, the description takes the rest of the line */
+	private static final int CSV_COLUMNS = 6;
+
+	/** hex digits per level of a sort key, allowing up to 65535 children per work package */
+	private static final int SORT_KEY_DIGITS = 4;
+
+	/** length of the SortKey column */
+	private static final int SORT_KEY_LENGTH = 40;
+
+	/** highest work package number a level of a sort key can hold */
+	public static final int MAX_NUMBER = (1 << (SORT_KEY_DIGITS * 4)) - 1;
+
+	/** deepest hierarchy level whose sort key still fits the SortKey column */
+	public static final int MAX_HIERARCHY_LEVEL = SORT_KEY_LENGTH / SORT_KEY_DIGITS - 1;
+
 	public static WorkPackage patchWorkPackage(WorkPackage current, WorkPackage old) {
 		if (current.getAllocatedBudget() != null) {
 			old.setAllocatedBudget(current.getAllocatedBudget());
@@ -16,6 +44,213 @@ public class WorkPackageHelper {
 		if (current.getInitialEstimate() != null) {
 			old.setInitialEstimate(current.getInitialEstimate());
 		}
+		// the version the client last read, so a stale edit is rejected
+		if (current.getVersion() != null) {
+			old.setVersion(current.getVersion());
+		}
 		return old;
 	}
+
+	/**
+	 * Returns the id of the work package followed by the ids of all of its
+	 * ancestors, e.g. WP1.2.3 -> [WP1.2.3, WP1.2, WP1].
+	 * Work package ids are always the parent id plus a suffix, so the
+	 * ancestors can be derived without touching the database.
+	 */
+	public static List<String> getPathIds(String id) {
+		List<String> ids = new ArrayList<String>();
+		ids.add(id);
+		for (int i = id.length() - 1; i > 0; i--) {
+			if (id.charAt(i) == SEPERATOR) {
+				ids.add(id.substring(0, i));
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Encodes a work package id as a fixed-width key whose string order is
+	 * the WBS order, e.g. WP1.10.2 -> 0001000a0002. Every level gets the same
+	 * number of digits, so WP1.2 sorts before WP1.10 and a parent sorts
+	 * right before its children.
+	 *
+	 * @throws IllegalArgumentException if a number is above MAX_NUMBER or the
+	 *         id is deeper than MAX_HIERARCHY_LEVEL, the key would not sort
+	 */
+	public static String getSortKey(String id) {
+		if (getHierarchyLevel(id) > MAX_HIERARCHY_LEVEL) {
+			throw new IllegalArgumentException(id + " is deeper than " + MAX_HIERARCHY_LEVEL + " levels");
+		}
+		StringBuilder key = new StringBuilder(SORT_KEY_LENGTH);
+		int number = 0;
+		for (int i = 0; i < id.length(); i++) {
+			char c = id.charAt(i);
+			if (c == SEPERATOR) {
+				appendSortKeyLevel(key, number);
+				number = 0;
+			} else if (c >= '0' && c <= '9') {
+				number = number * 10 + (c - '0');
+				if (number > MAX_NUMBER) {
+					throw new IllegalArgumentException(id + " has a number above " + MAX_NUMBER);
+				}
+			}
+		}
+		appendSortKeyLevel(key, number);
+		return key.toString();
+	}
+
+	/**
+	 * Hierarchy level of a work package from its id, 0 for a top level
+	 * work package.
+	 */
+	public static int getHierarchyLevel(String id) {
+		int level = 0;
+		for (int i = 0; i < id.length(); i++) {
+			if (id.charAt(i) == SEPERATOR) {
+				level++;
+			}
+		}
+		return level;
+	}
+
+	/**
+	 * Checks that imported trees fit in sort keys: no more than MAX_NUMBER
+	 * work packages side by side and no deeper than MAX_HIERARCHY_LEVEL.
+	 * The numbers of the top level also depend on the work packages already
+	 * in the project, they are checked again once the ids are given out.
+	 *
+	 * @throws IllegalArgumentException if a tree is too wide or too deep
+	 */
+	public static void checkImport(List<WorkPackageImport> roots) {
+		checkImport(roots, 0);
+	}
+
+	private static void checkImport(List<WorkPackageImport> nodes, int hierarchyLevel) {
+		if (nodes.size() > MAX_NUMBER) {
+			throw new IllegalArgumentException("more than " + MAX_NUMBER + " work packages on level " + hierarchyLevel);
+		}
+		for (WorkPackageImport node: nodes) {
+			if (node.getChildren() == null || node.getChildren().isEmpty()) {
+				continue;
+			}
+			if (hierarchyLevel == MAX_HIERARCHY_LEVEL) {
+				throw new IllegalArgumentException("work packages deeper than " + MAX_HIERARCHY_LEVEL + " levels");
+			}
+			checkImport(node.getChildren(), hierarchyLevel + 1);
+		}
+	}
+
+	/**
+	 * Turns imported trees into work packages, parents before their children.
+	 * Ids follow the position in the tree, starting at WP{firstNumber} for the
+	 * first root, and the allocated budget and initial estimate of every
+	 * parent are the sums over its children.
+	 *
+	 * @param projectId   project the trees are imported into
+	 * @param roots       top level work packages of the trees
+	 * @param firstNumber number of the first top level work package
+	 */
+	public static List<WorkPackage> flattenImport(String projectId, List<WorkPackageImport> roots, int firstNumber) {
+		List<WorkPackage> wps = new ArrayList<WorkPackage>();
+		for (int i = 0; i < roots.size(); i++) {
+			addImported(wps, projectId, null, PREFIX + (firstNumber + i), 0, roots.get(i));
+		}
+		return wps;
+	}
+
+	private static WorkPackage addImported(List<WorkPackage> wps, String projectId, String parentId, String id,
+			int hierarchyLevel, WorkPackageImport node) {
+		WorkPackage wp = new WorkPackage();
+		wp.setWorkPackagePk(new WorkPackagePK(id, projectId));
+		wp.setParentWPId(parentId);
+		wp.setHierarchyLevel(hierarchyLevel);
+		wp.setWorkPackageName(node.getWorkPackageName());
+		wp.setDescription(node.getDescription());
+		wp.setResponsibleEngineerId(node.getResponsibleEngineerId());
+		wp.setDueAt(node.getDueAt());
+		wp.setStatus(WorkPackageStatus.open);
+		wp.setBudget(node.getBudget() == null ? 0.0 : node.getBudget());
+		wp.setInitialEstimate(node.getInitialEstimate() == null ? 0.0 : node.getInitialEstimate());
+		wps.add(wp);
+
+		double allocatedBudget = 0.0;
+		double allocatedInitialEstimate = 0.0;
+		List<WorkPackageImport> children = node.getChildren() == null
+				? new ArrayList<WorkPackageImport>() : node.getChildren();
+		for (int i = 0; i < children.size(); i++) {
+			WorkPackage child = addImported(wps, projectId, id, id + SEPERATOR + (i + 1), hierarchyLevel + 1,
+					children.get(i));
+			allocatedBudget += child.getBudget();
+			allocatedInitialEstimate += child.getInitialEstimate();
+		}
+		wp.setAllocatedBudget(allocatedBudget);
+		wp.setAllocatedInitialEstimate(allocatedInitialEstimate);
+		wp.setLowestLevel(children.isEmpty());
+		return wp;
+	}
+
+	/**
+	 * Reads a WBS from CSV with the columns
+	 * path,name,budget,initialEstimate,responsibleEngineerId,description
+	 * where path is the position of the node in the tree (1, 1.1, 1.2, 2, ...).
+	 * A parent must come before its children. An optional header line
+	 * starting with "path" is skipped.
+	 *
+	 * @return the top level nodes
+	 * @throws IllegalArgumentException if a line is malformed or its parent is missing
+	 */
+	public static List<WorkPackageImport> parseImportCsv(String csv) {
+		List<WorkPackageImport> roots = new ArrayList<WorkPackageImport>();
+		Map<String, WorkPackageImport> byPath = new HashMap<String, WorkPackageImport>();
+		String[] lines = csv.split("\\r?\\n");
+		for (int n = 0; n < lines.length; n++) {
+			String line = lines[n].trim();
+			if (line.isEmpty() || (n == 0 && line.startsWith("path"))) {
+				continue;
+			}
+			String[] columns = line.split(",", CSV_COLUMNS);
+			try {
+				String path = columns[0].trim();
+				WorkPackageImport node = new WorkPackageImport();
+				node.setWorkPackageName(columns[1].trim());
+				node.setBudget(parseDouble(columns, 2));
+				node.setInitialEstimate(parseDouble(columns, 3));
+				if (columns.length > 4 && !columns[4].trim().isEmpty()) {
+					node.setResponsibleEngineerId(Integer.valueOf(columns[4].trim()));
+				}
+				if (columns.length > 5) {
+					node.setDescription(columns[5].trim());
+				}
+				int parentEnd = path.lastIndexOf(SEPERATOR);
+				if (parentEnd < 0) {
+					roots.add(node);
+				} else {
+					WorkPackageImport parent = byPath.get(path.substring(0, parentEnd));
+					if (parent == null) {
+						throw new IllegalArgumentException("parent of " + path + " is not listed before it");
+					}
+					parent.getChildren().add(node);
+				}
+				if (byPath.put(path, node) != null) {
+					throw new IllegalArgumentException("path " + path + " is listed twice");
+				}
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Line " + (n + 1) + ": " + e.getMessage(), e);
+			}
+		}
+		return roots;
+	}
+
+	private static Double parseDouble(String[] columns, int index) {
+		if (columns.length <= index || columns[index].trim().isEmpty()) {
+			return null;
+		}
+		return Double.valueOf(columns[index].trim());
+	}
+
+	private static void appendSortKeyLevel(StringBuilder key, int number) {
+		for (int shift = (SORT_KEY_DIGITS - 1) * 4; shift >= 0; shift -= 4) {
+			key.append(Character.forDigit((number >>> shift) & 0xF, 16));
+		}
+	}
 }
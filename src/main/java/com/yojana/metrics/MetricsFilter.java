@@ -0,0 +1,76 @@
+package com.yojana.metrics;
+
+import java.io.IOException;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Times every request and counts the database work done while it runs, per
+ * resource class and method. Runs before authentication so its queries are counted
+ * too, and stops once the response body is written so streamed responses
+ * are included.
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION - 100)
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String START_PROPERTY = "MetricsFilter.start";
+    private static final String STATISTICS_PROPERTY = "MetricsFilter.statistics";
+    private static final String ENDPOINT_PROPERTY = "MetricsFilter.endpoint";
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Inject
+    private MetricsRegistry registry;
+
+    @Override
+    public void filter(ContainerRequestContext request) throws IOException {
+        request.setProperty(START_PROPERTY, System.nanoTime());
+        request.setProperty(STATISTICS_PROPERTY, registry.start());
+        final String[] endpoint = resourceInfo.getResourceMethod() == null ? new String[] { "unmatched", "" }
+                : new String[] { resourceInfo.getResourceClass().getSimpleName(),
+                        resourceInfo.getResourceMethod().getName() };
+        request.setProperty(ENDPOINT_PROPERTY, endpoint);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+        // the body is written after this, finish in aroundWriteTo instead
+        if (!response.hasEntity()) {
+            finish(request.getProperty(START_PROPERTY), request.getProperty(STATISTICS_PROPERTY),
+                    request.getProperty(ENDPOINT_PROPERTY));
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        try {
+            context.proceed();
+        } finally {
+            finish(context.getProperty(START_PROPERTY), context.getProperty(STATISTICS_PROPERTY),
+                    context.getProperty(ENDPOINT_PROPERTY));
+        }
+    }
+
+    private void finish(Object start, Object statistics, Object endpoint) {
+        // requests rejected before matching never went through the request filter
+        if (start == null) {
+            return;
+        }
+        final String[] names = (String[]) endpoint;
+        registry.record(names[0], names[1], System.nanoTime() - (Long) start, (RequestStatistics) statistics);
+    }
+}
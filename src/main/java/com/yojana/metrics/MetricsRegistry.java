@@ -0,0 +1,141 @@
+package com.yojana.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.SessionFactory;
+
+/**
+ * Latency and database work per endpoint, since the application started,
+ * written out in the Prometheus text format.
+ */
+@ApplicationScoped
+public class MetricsRegistry {
+
+    /** upper bounds of the latency buckets, in seconds */
+    private static final double[] LATENCY_BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    /** upper bounds of the statements per request buckets */
+    private static final double[] STATEMENT_BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500 };
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    @PersistenceUnit(unitName="comp4911-pms-rest-jpa")
+    private EntityManagerFactory emf;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    // Reads the database work done so far, to be passed back to record when the request ends
+    public RequestStatistics start() {
+        return RequestStatistics.of(emf.unwrap(SessionFactory.class).getStatistics());
+    }
+
+    // Records a finished request
+    public void record(String resource, String method, long nanos, RequestStatistics start) {
+        RequestStatistics statistics = start().since(start);
+        Endpoint endpoint = endpoints.computeIfAbsent(resource + "." + method, key -> new Endpoint(resource, method));
+        endpoint.latency.observe(nanos / NANOS_PER_SECOND);
+        endpoint.statements.observe(statistics.getStatements());
+        endpoint.entitiesLoaded.add(statistics.getEntitiesLoaded());
+        endpoint.rowsReturned.add(statistics.getRowsReturned());
+    }
+
+    // Writes every metric in the Prometheus text exposition format
+    public String scrape() {
+        Map<String, Endpoint> sorted = new TreeMap<>(endpoints);
+        StringBuilder out = new StringBuilder();
+
+        header(out, "yojana_http_request_duration_seconds", "histogram", "Time spent handling a request.");
+        for (Endpoint endpoint: sorted.values()) {
+            endpoint.latency.write(out, "yojana_http_request_duration_seconds", endpoint.labels);
+        }
+        header(out, "yojana_http_request_sql_statements", "histogram", "SQL statements issued per request.");
+        for (Endpoint endpoint: sorted.values()) {
+            endpoint.statements.write(out, "yojana_http_request_sql_statements", endpoint.labels);
+        }
+        header(out, "yojana_http_request_entities_loaded_total", "counter", "Entities loaded from the database.");
+        for (Endpoint endpoint: sorted.values()) {
+            sample(out, "yojana_http_request_entities_loaded_total", endpoint.labels, endpoint.entitiesLoaded.sum());
+        }
+        header(out, "yojana_http_request_rows_returned_total", "counter", "Rows returned by queries.");
+        for (Endpoint endpoint: sorted.values()) {
+            sample(out, "yojana_http_request_rows_returned_total", endpoint.labels, endpoint.rowsReturned.sum());
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ").append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value) ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    /* label values may not hold quotes, backslashes or newlines unescaped */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Endpoint {
+        private final String labels;
+        private final Histogram latency = new Histogram(LATENCY_BUCKETS);
+        private final Histogram statements = new Histogram(STATEMENT_BUCKETS);
+        private final LongAdder entitiesLoaded = new LongAdder();
+        private final LongAdder rowsReturned = new LongAdder();
+
+        Endpoint(String resource, String method) {
+            this.labels = "resource=\"" + escape(resource) + "\",method=\"" + escape(method) + "\"";
+        }
+    }
+
+    private static final class Histogram {
+        private final double[] bounds;
+        // one counter per bucket, the last one for values above every bound
+        private final LongAdder[] buckets;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds;
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void observe(double value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sum.add(value);
+        }
+
+        /* buckets are written cumulatively, as Prometheus expects */
+        void write(StringBuilder out, String name, String labels) {
+            long count = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                count += buckets[i].sum();
+                String le = i < bounds.length ? format(bounds[i]) : "+Inf";
+                out.append(name).append("_bucket{").append(labels).append(",le=\"").append(le).append("\"} ")
+                        .append(count).append('\n');
+            }
+            sample(out, name + "_sum", labels, sum.sum());
+            sample(out, name + "_count", labels, count);
+        }
+    }
+}
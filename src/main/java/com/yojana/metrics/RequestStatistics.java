@@ -0,0 +1,52 @@
+package com.yojana.metrics;
+
+import org.hibernate.stat.Statistics;
+
+/**
+ * Totals of Hibernate's statistics at one moment. The database work of a
+ * request is the difference between the totals when it ends and when it
+ * started. The statistics are kept for the whole application, so work done
+ * by requests or background jobs running at the same time is included.
+ * Needs hibernate.generate_statistics.
+ */
+public final class RequestStatistics {
+
+    private final long statements;
+
+    private final long entitiesLoaded;
+
+    private final long rowsReturned;
+
+    private RequestStatistics(long statements, long entitiesLoaded, long rowsReturned) {
+        this.statements = statements;
+        this.entitiesLoaded = entitiesLoaded;
+        this.rowsReturned = rowsReturned;
+    }
+
+    /** Reads the current totals. */
+    static RequestStatistics of(Statistics statistics) {
+        long rows = 0;
+        for (String query: statistics.getQueries()) {
+            rows += statistics.getQueryStatistics(query).getExecutionRowCount();
+        }
+        return new RequestStatistics(statistics.getPrepareStatementCount(), statistics.getEntityLoadCount(), rows);
+    }
+
+    /** The work done since the start totals, none if the statistics were cleared in between. */
+    RequestStatistics since(RequestStatistics start) {
+        return new RequestStatistics(Math.max(0, statements - start.statements),
+                Math.max(0, entitiesLoaded - start.entitiesLoaded), Math.max(0, rowsReturned - start.rowsReturned));
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    public long getRowsReturned() {
+        return rowsReturned;
+    }
+}
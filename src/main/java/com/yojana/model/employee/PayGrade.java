@@ -2,11 +2,15 @@ package com.yojana.model.employee;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.BatchSize;
+
 /**
  * Entity implementation class for Entity: PayGrade
  *
  */
 @Entity
+@Cacheable
+@BatchSize(size = 50)
 @Table(name = "PayGrade")
 public class PayGrade {
     
@@ -17,11 +17,19 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinColumns;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceUtil;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Type;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -32,13 +40,26 @@ import com.yojana.model.project.WorkPackage;
 import com.yojana.model.timesheet.LocalDateDeserializer;
 import com.yojana.model.timesheet.LocalDateSerializer;
 
+/**
+ * Rows are loaded lazily. Queries that return estimates with their rows
+ * fetch them with the ROWS_GRAPH entity graph, rows touched otherwise are
+ * loaded in batches. Rows that were never loaded are left out of the JSON.
+ */
 @Entity
 @Table(name = "Estimate")
 @EntityListeners(AuditListener.class)
+@NamedEntityGraph(name = Estimate.ROWS_GRAPH,
+    attributeNodes = @NamedAttributeNode(value = "rows", subgraph = "rows"),
+    subgraphs = @NamedSubgraph(name = "rows", attributeNodes = @NamedAttributeNode("payGrade")))
 public class Estimate implements Auditable, Serializable, Comparable<Estimate> {
     
     private static final long serialVersionUID = -8709713671106036600L;
     
+    /** entity graph loading the rows and their pay grades with the estimate */
+    public static final String ROWS_GRAPH = "Estimate.rows";
+    
+    private static final PersistenceUtil PERSISTENCE_UTIL = Persistence.getPersistenceUtil();
+    
     @Embedded
     private Audit audit;
     
@@ -73,7 +94,8 @@ public class Estimate implements Auditable, Serializable, Comparable<Estimate> {
     @Column(name = "Type", columnDefinition = "enum")
     private EstimateType type;
     
-    @OneToMany(mappedBy = "estimate", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "estimate", fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     private Set<EstimateRow> rows;
 
     public Audit getAudit() {
@@ -140,14 +162,25 @@ public class Estimate implements Auditable, Serializable, Comparable<Estimate> {
 		this.type = type;
 	}
 
+	@JsonIgnore
 	public Set<EstimateRow> getRows() {
 		return rows;
 	}
 
+	@JsonProperty("rows")
 	public void setRows(Set<EstimateRow> rows) {
 		this.rows = rows;
 	}
 
+	/**
+	 * @return the rows if they were loaded, null otherwise
+	 */
+	@JsonProperty("rows")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public Set<EstimateRow> getLoadedRows() {
+		return PERSISTENCE_UTIL.isLoaded(rows) ? rows : null;
+	}
+
 	@Override
 	public int compareTo(Estimate o) {
 		return this.audit.getCreatedAt().compareTo(o.getAudit().getCreatedAt());
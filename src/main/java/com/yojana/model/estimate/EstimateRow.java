@@ -9,17 +9,29 @@ import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceUtil;
 import javax.persistence.Table;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.yojana.model.employee.PayGrade;
 
 @Entity
 @Table(name = "EstimateRow")
+@NamedEntityGraph(name = EstimateRow.PAY_GRADE_GRAPH, attributeNodes = @NamedAttributeNode("payGrade"))
 public class EstimateRow implements Serializable {
     
     private static final long serialVersionUID = -8709713671106036600L;
     
+    /** entity graph loading the pay grade with the row */
+    public static final String PAY_GRADE_GRAPH = "EstimateRow.payGrade";
+    
+    private static final PersistenceUtil PERSISTENCE_UTIL = Persistence.getPersistenceUtil();
+    
     @EmbeddedId
     private EstimateRowPK estimateRowPk;
     
@@ -28,7 +40,7 @@ public class EstimateRow implements Serializable {
     @JoinColumn(name = "EstimateID", referencedColumnName = "EstimateID", insertable = false, updatable = false)
     private Estimate estimate;
     
-    @ManyToOne(fetch = FetchType.EAGER, cascade = { CascadeType.MERGE})
+    @ManyToOne(fetch = FetchType.LAZY, cascade = { CascadeType.MERGE})
     @JoinColumn(name = "PayGradeID", referencedColumnName = "LabourGrade")
     private PayGrade payGrade;
     
@@ -57,14 +69,32 @@ public class EstimateRow implements Serializable {
         this.estimate = estimate;
     }
 
+    @JsonIgnore
     public PayGrade getPayGrade() {
         return payGrade;
     }
 
+    @JsonProperty("payGrade")
     public void setPayGrade(PayGrade payGrade) {
         this.payGrade = payGrade;
     }
 
+    /**
+     * @return the pay grade if it was loaded, null otherwise
+     */
+    @JsonProperty("payGrade")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public PayGrade getLoadedPayGrade() {
+        if (!isPayGradeLoaded()) {
+            return null;
+        }
+        // a batch loaded pay grade is still a proxy, copy its values out through the association
+        PayGrade loaded = new PayGrade();
+        loaded.setLabourGrade(payGrade.getLabourGrade());
+        loaded.setChargeRate(payGrade.getChargeRate());
+        return loaded;
+    }
+
     public float getEmpDays() {
         return empDays;
     }
@@ -89,8 +119,22 @@ public class EstimateRow implements Serializable {
 		this.paygradeId = paygradeId;
 	}
 	
+	@JsonIgnore
 	public float getTotalCost() {
 		return empDays * 8 * payGrade.getChargeRate() * empCount;
 	}
+
+	/**
+	 * @return the total cost if the pay grade was loaded, null otherwise
+	 */
+	@JsonProperty("totalCost")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public Float getLoadedTotalCost() {
+		return isPayGradeLoaded() ? getTotalCost() : null;
+	}
+
+	private boolean isPayGradeLoaded() {
+		return payGrade != null && PERSISTENCE_UTIL.isLoaded(payGrade);
+	}
     
 }
@@ -3,6 +3,7 @@ package com.yojana.model.project;
 import java.io.Serializable;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Embedded;
@@ -18,6 +19,7 @@ import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.yojana.model.auditable.Audit;
@@ -26,6 +28,7 @@ import com.yojana.model.auditable.Auditable;
 import com.yojana.model.employee.Employee;
 
 @Entity
+@Cacheable
 @Table(name = "Project")
 @EntityListeners(AuditListener.class)
 public class Project  implements Auditable, Serializable {
@@ -83,6 +86,22 @@ public class Project  implements Auditable, Serializable {
         inverseJoinColumns = { @JoinColumn(name = "EmpID") }
     )
     private Set<Employee> employees;
+	
+	/**
+	 * Incremented on every update, a merge of an older copy fails
+	 * instead of overwriting the newer row
+	 */
+	@Version
+	@Column(name = "Version")
+	private Integer version;
+
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
 
 	public Audit getAudit() {
 		return audit;
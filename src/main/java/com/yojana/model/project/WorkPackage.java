@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.Date;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Embedded;
@@ -24,8 +25,11 @@ import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.yojana.helpers.WorkPackageHelper;
 import com.yojana.model.auditable.Audit;
 import com.yojana.model.auditable.AuditListener;
 import com.yojana.model.auditable.Auditable;
@@ -34,6 +38,7 @@ import com.yojana.model.estimate.Estimate;
 import com.yojana.model.timesheet.TimesheetRow;
 
 @Entity
+@Cacheable
 @Table(name = "WorkPackage")
 @EntityListeners(AuditListener.class)
 public class WorkPackage implements Auditable, Serializable, Comparable<WorkPackage> {
@@ -142,6 +147,38 @@ public class WorkPackage implements Auditable, Serializable, Comparable<WorkPack
 	@Column(name = "HierarchyLevel")
 	private int hierarchyLevel;
 	
+	/**
+	 * Fixed-width encoding of the id that orders work packages in WBS order,
+	 * see WorkPackageHelper.getSortKey
+	 */
+	@Column(name = "SortKey")
+	@JsonIgnore
+	private String sortKey;
+	
+	/**
+	 * Incremented on every update, a merge of an older copy fails
+	 * instead of overwriting the newer row
+	 */
+	@Version
+	@Column(name = "Version")
+	private Integer version;
+	
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+	
+	@JsonIgnore
+	public String getSortKey() {
+		if (sortKey == null) {
+			sortKey = WorkPackageHelper.getSortKey(workPackagePk.getId());
+		}
+		return sortKey;
+	}
+	
 	public WorkPackage() {
 		
 	}
@@ -369,37 +406,16 @@ public class WorkPackage implements Auditable, Serializable, Comparable<WorkPack
 	    if (planned == null) {
 	    	planned = 0.0;
 	    }
+	    sortKey = WorkPackageHelper.getSortKey(workPackagePk.getId());
 	}
 
 	@Override
 	public int compareTo(WorkPackage wp) {
-		if (!this.workPackagePk.getProjectID().equals(wp.getWorkPackagePk().getProjectID())) {
-			return this.workPackagePk.getProjectID().compareTo(wp.getWorkPackagePk().getProjectID());
-		}
-		String id1 = this.getWorkPackagePk().getId().substring(2);
-		String id2 = wp.getWorkPackagePk().getId().substring(2);
-		int lesser = (id1.length() > id2.length()) ? id2.length() : id1.length();
-		
-		if (this.getHierarchyLevel() == wp.getHierarchyLevel()
-				&& this.getHierarchyLevel() == 0) {
-			return Integer.parseInt(id1) - Integer.parseInt(id2);
-		}
-			
-		for (int i = 0; i < lesser; i += 2) {
-			if (i >= id1.length()) {
-				return 1;
-			}
-			if (i >= id2.length()) {
-				return -1;
-			}
-			if (id1.charAt(i) == id2.charAt(i)) continue;
-			if (id1.charAt(i) < id2.charAt(i)) {
-				return 1;
-			} else {
-				return -1;
-			}
+		int byProject = workPackagePk.getProjectID().compareTo(wp.getWorkPackagePk().getProjectID());
+		if (byProject != 0) {
+			return byProject;
 		}
-		return 0;
+		return getSortKey().compareTo(wp.getSortKey());
 	}
 
 }
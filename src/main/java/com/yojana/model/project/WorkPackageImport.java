@@ -0,0 +1,91 @@
+package com.yojana.model.project;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One node of a work breakdown structure sent to the bulk import.
+ * Ids are not part of the import, they are assigned from the position
+ * of the node in the tree.
+ *
+ * @author yogeshverma
+ */
+public class WorkPackageImport implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -6468219516624339580L;
+
+	private String workPackageName;
+
+	private String description;
+
+	private Double budget;
+
+	private Double initialEstimate;
+
+	private Integer responsibleEngineerId;
+
+	private Date dueAt;
+
+	private List<WorkPackageImport> children = new ArrayList<>();
+
+	public String getWorkPackageName() {
+		return workPackageName;
+	}
+
+	public void setWorkPackageName(String workPackageName) {
+		this.workPackageName = workPackageName;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public Double getBudget() {
+		return budget;
+	}
+
+	public void setBudget(Double budget) {
+		this.budget = budget;
+	}
+
+	public Double getInitialEstimate() {
+		return initialEstimate;
+	}
+
+	public void setInitialEstimate(Double initialEstimate) {
+		this.initialEstimate = initialEstimate;
+	}
+
+	public Integer getResponsibleEngineerId() {
+		return responsibleEngineerId;
+	}
+
+	public void setResponsibleEngineerId(Integer responsibleEngineerId) {
+		this.responsibleEngineerId = responsibleEngineerId;
+	}
+
+	public Date getDueAt() {
+		return dueAt;
+	}
+
+	public void setDueAt(Date dueAt) {
+		this.dueAt = dueAt;
+	}
+
+	public List<WorkPackageImport> getChildren() {
+		return children;
+	}
+
+	public void setChildren(List<WorkPackageImport> children) {
+		this.children = children;
+	}
+}
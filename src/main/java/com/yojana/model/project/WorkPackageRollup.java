@@ -0,0 +1,109 @@
+package com.yojana.model.project;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * Materialized earned value totals for a work package.
+ * Rows are maintained incrementally by the managers that write
+ * timesheet rows and estimates, and every delta applied to a work
+ * package is also applied to all of its ancestors, so a row always
+ * holds the totals of the whole subtree below it.
+ *
+ * @author yogeshverma
+ */
+@Entity
+@Table(name = "WorkPackageRollup")
+public class WorkPackageRollup implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -3120477451580874935L;
+
+	@EmbeddedId
+	private WorkPackagePK workPackagePk;
+
+	/**
+	 * Total hours charged to the work package
+	 */
+	@Column(name = "ChargeHours", columnDefinition = "DOUBLE")
+	private double chargeHours;
+
+	/**
+	 * Total charge (hours * charge rate of the employee at the time of charging)
+	 */
+	@Column(name = "Charge", columnDefinition = "DOUBLE")
+	private double charge;
+
+	@Column(name = "Planned", columnDefinition = "DOUBLE")
+	private double planned;
+
+	/**
+	 * Estimate to complete taken from the latest weekly estimate
+	 */
+	@Column(name = "EstimateToComplete", columnDefinition = "DOUBLE")
+	private double estimateToComplete;
+
+	/**
+	 * Always charge + estimateToComplete
+	 */
+	@Column(name = "EstimateAtCompletion", columnDefinition = "DOUBLE")
+	private double estimateAtCompletion;
+
+	public WorkPackageRollup() {
+	}
+
+	public WorkPackagePK getWorkPackagePk() {
+		return workPackagePk;
+	}
+
+	public void setWorkPackagePk(WorkPackagePK workPackagePk) {
+		this.workPackagePk = workPackagePk;
+	}
+
+	public double getChargeHours() {
+		return chargeHours;
+	}
+
+	public void setChargeHours(double chargeHours) {
+		this.chargeHours = chargeHours;
+	}
+
+	public double getCharge() {
+		return charge;
+	}
+
+	public void setCharge(double charge) {
+		this.charge = charge;
+	}
+
+	public double getPlanned() {
+		return planned;
+	}
+
+	public void setPlanned(double planned) {
+		this.planned = planned;
+	}
+
+	public double getEstimateToComplete() {
+		return estimateToComplete;
+	}
+
+	public void setEstimateToComplete(double estimateToComplete) {
+		this.estimateToComplete = estimateToComplete;
+	}
+
+	public double getEstimateAtCompletion() {
+		return estimateAtCompletion;
+	}
+
+	public void setEstimateAtCompletion(double estimateAtCompletion) {
+		this.estimateAtCompletion = estimateAtCompletion;
+	}
+
+}
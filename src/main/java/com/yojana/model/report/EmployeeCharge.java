@@ -0,0 +1,90 @@
+package com.yojana.model.report;
+
+import java.io.Serializable;
+
+import com.yojana.model.employee.PayGrade;
+
+/**
+ * Hours and charge of one employee against a work package.
+ *
+ * @author yogeshverma
+ */
+public class EmployeeCharge implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 6313925368307712440L;
+
+	private int empId;
+
+	private String empName;
+
+	private PayGrade payGrade;
+
+	private double hours;
+
+	private double charge;
+
+	public EmployeeCharge() {
+	}
+
+	public EmployeeCharge(int empId, String empName, PayGrade payGrade) {
+		this.empId = empId;
+		this.empName = empName;
+		this.payGrade = payGrade;
+	}
+
+	/**
+	 * Adds hours with the charge stored for them, which used the charge rate
+	 * in effect when they were entered.
+	 *
+	 * @param chargedHours hours to add
+	 * @param chargedAmount charge of those hours
+	 */
+	public void add(double chargedHours, double chargedAmount) {
+		hours += chargedHours;
+		charge += chargedAmount;
+	}
+
+	public int getEmpId() {
+		return empId;
+	}
+
+	public void setEmpId(int empId) {
+		this.empId = empId;
+	}
+
+	public String getEmpName() {
+		return empName;
+	}
+
+	public void setEmpName(String empName) {
+		this.empName = empName;
+	}
+
+	public PayGrade getPayGrade() {
+		return payGrade;
+	}
+
+	public void setPayGrade(PayGrade payGrade) {
+		this.payGrade = payGrade;
+	}
+
+	public double getHours() {
+		return hours;
+	}
+
+	public void setHours(double hours) {
+		this.hours = hours;
+	}
+
+	public double getCharge() {
+		return charge;
+	}
+
+	public void setCharge(double charge) {
+		this.charge = charge;
+	}
+
+}
@@ -0,0 +1,253 @@
+package com.yojana.model.report;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import com.yojana.helpers.PackedHoursHelper;
+import com.yojana.helpers.WorkPackageHelper;
+import com.yojana.model.timesheet.TimesheetRow;
+
+/**
+ * Hours charged to one project, one cell per employee, work package and
+ * week. Employees, work packages and weeks are numbered in dictionaries and
+ * the cells are held in parallel primitive arrays, the daily hours of a cell
+ * packed into a long the same way as a timesheet row. Queries are a single
+ * pass over the arrays, without touching the database or any entity.
+ */
+public class HoursCube {
+
+	/** What the hours of a query are totalled by. */
+	public enum Dimension {
+		EMPLOYEE, WORK_PACKAGE, WEEK, DAY
+	}
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** bits of a dictionary number inside a cell key */
+	private static final int KEY_BITS = 21;
+
+	private final String projectId;
+
+	private final Dictionary<Integer> employees = new Dictionary<>();
+
+	private final Dictionary<String> workPackages = new Dictionary<>();
+
+	private final Dictionary<LocalDate> weeks = new Dictionary<>();
+
+	/** cell number of every employee, work package and week combination */
+	private final Map<Long, Integer> cells = new HashMap<>();
+
+	private int[] cellEmployees = new int[INITIAL_CAPACITY];
+
+	private int[] cellWorkPackages = new int[INITIAL_CAPACITY];
+
+	private int[] cellWeeks = new int[INITIAL_CAPACITY];
+
+	private long[] cellHours = new long[INITIAL_CAPACITY];
+
+	private int size;
+
+	public HoursCube(String projectId) {
+		this.projectId = projectId;
+	}
+
+	public String getProjectId() {
+		return projectId;
+	}
+
+	/**
+	 * @return number of non-empty cells
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Sets the daily decihours of a cell.
+	 *
+	 * @param empId         employee who charged the hours
+	 * @param workPackageId work package the hours were charged to
+	 * @param endWeek       last day of the timesheet week
+	 * @param packedHours   decihours per day, packed like a timesheet row
+	 */
+	public synchronized void put(int empId, String workPackageId, LocalDate endWeek, long packedHours) {
+		cellHours[getCell(empId, workPackageId, endWeek)] = packedHours;
+	}
+
+	/**
+	 * Replaces hours of a timesheet row in a cell, day by day.
+	 *
+	 * @param removed packed hours taken out of the cell
+	 * @param added   packed hours put into the cell
+	 * @return false if a day of the cell would drop below zero or overflow,
+	 *         in which case the cube no longer matches the database
+	 */
+	public synchronized boolean apply(int empId, String workPackageId, LocalDate endWeek, long removed,
+			long added) {
+		final int cell = getCell(empId, workPackageId, endWeek);
+		long packed = cellHours[cell];
+		for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+			int decihours = PackedHoursHelper.getDecihour(packed, d) - PackedHoursHelper.getDecihour(removed, d)
+					+ PackedHoursHelper.getDecihour(added, d);
+			if (decihours < 0 || decihours > 0xFF) {
+				return false;
+			}
+			packed = PackedHoursHelper.setDecihour(packed, d, decihours);
+		}
+		cellHours[cell] = packed;
+		return true;
+	}
+
+	/**
+	 * Totals the hours of the cells matching the given filters.
+	 *
+	 * @param by            what to total the hours by
+	 * @param empId         only hours of this employee, all if null
+	 * @param workPackageId only hours of this work package and the ones below it, all if null
+	 * @param from          only weeks ending on or after this date, all if null
+	 * @param to            only weeks ending on or before this date, all if null
+	 * @return hours per employee id, work package id, week end or day, in that order
+	 */
+	public synchronized Map<String, Float> sum(Dimension by, Integer empId, String workPackageId, LocalDate from,
+			LocalDate to) {
+		final int employee = empId == null ? -1 : employees.find(empId);
+		final boolean[] workPackageMatches = new boolean[workPackages.size()];
+		for (int i = 0; i < workPackageMatches.length; i++) {
+			workPackageMatches[i] = workPackageId == null
+					|| WorkPackageHelper.getPathIds(workPackages.get(i)).contains(workPackageId);
+		}
+		final boolean[] weekMatches = new boolean[weeks.size()];
+		for (int i = 0; i < weekMatches.length; i++) {
+			LocalDate week = weeks.get(i);
+			weekMatches[i] = (from == null || !week.isBefore(from)) && (to == null || !week.isAfter(to));
+		}
+
+		final int groups = by == Dimension.EMPLOYEE ? employees.size()
+				: by == Dimension.WORK_PACKAGE ? workPackages.size()
+				: by == Dimension.WEEK ? weeks.size() : weeks.size() * TimesheetRow.DAYS_IN_WEEK;
+		final int[] totals = new int[groups];
+		final boolean[] seen = new boolean[groups];
+		if (empId == null || employee >= 0) {
+			for (int i = 0; i < size; i++) {
+				if (employee >= 0 && cellEmployees[i] != employee || !workPackageMatches[cellWorkPackages[i]]
+						|| !weekMatches[cellWeeks[i]]) {
+					continue;
+				}
+				if (by == Dimension.DAY) {
+					int first = cellWeeks[i] * TimesheetRow.DAYS_IN_WEEK;
+					for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+						totals[first + d] += PackedHoursHelper.getDecihour(cellHours[i], d);
+						seen[first + d] = true;
+					}
+				} else {
+					int group = by == Dimension.EMPLOYEE ? cellEmployees[i]
+							: by == Dimension.WORK_PACKAGE ? cellWorkPackages[i] : cellWeeks[i];
+					totals[group] += PackedHoursHelper.sum(cellHours[i]);
+					seen[group] = true;
+				}
+			}
+		}
+
+		final Map<String, Float> result = new LinkedHashMap<>();
+		switch (by) {
+		case EMPLOYEE:
+			for (int i: employees.order(Comparator.naturalOrder())) {
+				if (seen[i]) {
+					result.put(String.valueOf(employees.get(i)), TimesheetRow.toHour(totals[i]));
+				}
+			}
+			break;
+		case WORK_PACKAGE:
+			for (int i: workPackages.order(Comparator.comparing(WorkPackageHelper::getSortKey))) {
+				if (seen[i]) {
+					result.put(workPackages.get(i), TimesheetRow.toHour(totals[i]));
+				}
+			}
+			break;
+		case WEEK:
+			for (int i: weeks.order(Comparator.naturalOrder())) {
+				if (seen[i]) {
+					result.put(weeks.get(i).toString(), TimesheetRow.toHour(totals[i]));
+				}
+			}
+			break;
+		default:
+			for (int i: weeks.order(Comparator.naturalOrder())) {
+				for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+					int group = i * TimesheetRow.DAYS_IN_WEEK + d;
+					if (seen[group]) {
+						LocalDate day = weeks.get(i).minusDays(TimesheetRow.LAST_DAY - d);
+						result.put(day.toString(), TimesheetRow.toHour(totals[group]));
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/* number of the cell for a combination, a new empty cell if there is none yet */
+	private int getCell(int empId, String workPackageId, LocalDate endWeek) {
+		final int employee = employees.add(empId);
+		final int workPackage = workPackages.add(workPackageId);
+		final int week = weeks.add(endWeek);
+		final long key = ((long) employee << KEY_BITS | workPackage) << KEY_BITS | week;
+		Integer cell = cells.get(key);
+		if (cell == null) {
+			if (size == cellHours.length) {
+				int capacity = size * 2;
+				cellEmployees = Arrays.copyOf(cellEmployees, capacity);
+				cellWorkPackages = Arrays.copyOf(cellWorkPackages, capacity);
+				cellWeeks = Arrays.copyOf(cellWeeks, capacity);
+				cellHours = Arrays.copyOf(cellHours, capacity);
+			}
+			cell = size++;
+			cellEmployees[cell] = employee;
+			cellWorkPackages[cell] = workPackage;
+			cellWeeks[cell] = week;
+			cells.put(key, cell);
+		}
+		return cell;
+	}
+
+	/* values numbered in the order they were first seen */
+	private static final class Dictionary<T> {
+		private final List<T> values = new ArrayList<>();
+		private final Map<T, Integer> numbers = new HashMap<>();
+
+		int add(T value) {
+			Integer number = numbers.get(value);
+			if (number == null) {
+				number = values.size();
+				values.add(value);
+				numbers.put(value, number);
+			}
+			return number;
+		}
+
+		int find(T value) {
+			Integer number = numbers.get(value);
+			return number == null ? -1 : number;
+		}
+
+		T get(int number) {
+			return values.get(number);
+		}
+
+		int size() {
+			return values.size();
+		}
+
+		int[] order(Comparator<? super T> comparator) {
+			return IntStream.range(0, values.size()).boxed()
+					.sorted(Comparator.comparing(values::get, comparator))
+					.mapToInt(Integer::intValue).toArray();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.yojana.model.report;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.yojana.model.timesheet.LocalDateSerializer;
+
+/**
+ * A report generated in the background. Clients submit it, poll it by id
+ * and fetch the report once it is done.
+ *
+ * @author yogeshverma
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReportJob {
+
+	private final UUID id = UUID.randomUUID();
+
+	private final String projectId;
+
+	private final ReportType type;
+
+	@JsonSerialize(using = LocalDateSerializer.class)
+	private final LocalDate date;
+
+	@JsonIgnore
+	private final int submittedBy;
+
+	private final Date submittedAt = new Date();
+
+	private volatile ReportJobStatus status = ReportJobStatus.pending;
+
+	private volatile Date completedAt;
+
+	private volatile String error;
+
+	@JsonIgnore
+	private volatile Map<String, WorkPackageReport> report;
+
+	public ReportJob(String projectId, ReportType type, LocalDate date, int submittedBy) {
+		this.projectId = projectId;
+		this.type = type;
+		this.date = date;
+		this.submittedBy = submittedBy;
+	}
+
+	public UUID getId() {
+		return id;
+	}
+
+	public String getProjectId() {
+		return projectId;
+	}
+
+	public ReportType getType() {
+		return type;
+	}
+
+	public LocalDate getDate() {
+		return date;
+	}
+
+	public int getSubmittedBy() {
+		return submittedBy;
+	}
+
+	public Date getSubmittedAt() {
+		return submittedAt;
+	}
+
+	public ReportJobStatus getStatus() {
+		return status;
+	}
+
+	public void setStatus(ReportJobStatus status) {
+		this.status = status;
+	}
+
+	public Date getCompletedAt() {
+		return completedAt;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public Map<String, WorkPackageReport> getReport() {
+		return report;
+	}
+
+	/** Marks the job done with its report. */
+	public void complete(Map<String, WorkPackageReport> report) {
+		this.report = report;
+		this.completedAt = new Date();
+		this.status = ReportJobStatus.done;
+	}
+
+	/** Marks the job failed with the reason. */
+	public void fail(String error) {
+		this.error = error;
+		this.completedAt = new Date();
+		this.status = ReportJobStatus.failed;
+	}
+}
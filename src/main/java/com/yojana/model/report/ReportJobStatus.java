@@ -0,0 +1,5 @@
+package com.yojana.model.report;
+
+public enum ReportJobStatus {
+    pending, running, done, failed
+}
@@ -0,0 +1,162 @@
+package com.yojana.model.report;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A single work package line of a project report.
+ * Charge, hours, planned and cost figures are totals for the whole
+ * subtree of the work package, budget and initial estimate are the
+ * work package's own values.
+ *
+ * @author yogeshverma
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WorkPackageReport implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -1946508612771553870L;
+
+	private String id;
+
+	@JsonIgnore
+	private String parentId;
+
+	private int hierarchyLevel;
+
+	private double hours;
+
+	private double charge;
+
+	private double planned;
+
+	private double budget;
+
+	private double costToComplete;
+
+	private double costAtCompletion;
+
+	private double initialEstimate;
+
+	/**
+	 * Charges per employee, only filled in for lowest level work packages
+	 * of the weekly report
+	 */
+	private Map<Integer, EmployeeCharge> details;
+
+	public WorkPackageReport() {
+	}
+
+	public WorkPackageReport(String id, String parentId, int hierarchyLevel) {
+		this.id = id;
+		this.parentId = parentId;
+		this.hierarchyLevel = hierarchyLevel;
+	}
+
+	/**
+	 * Adds the subtree totals of a child to this work package.
+	 *
+	 * @param child report line of a direct child
+	 */
+	public void add(WorkPackageReport child) {
+		hours += child.hours;
+		charge += child.charge;
+		planned += child.planned;
+		costToComplete += child.costToComplete;
+		costAtCompletion += child.costAtCompletion;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getParentId() {
+		return parentId;
+	}
+
+	public void setParentId(String parentId) {
+		this.parentId = parentId;
+	}
+
+	public int getHierarchyLevel() {
+		return hierarchyLevel;
+	}
+
+	public void setHierarchyLevel(int hierarchyLevel) {
+		this.hierarchyLevel = hierarchyLevel;
+	}
+
+	public double getHours() {
+		return hours;
+	}
+
+	public void setHours(double hours) {
+		this.hours = hours;
+	}
+
+	public double getCharge() {
+		return charge;
+	}
+
+	public void setCharge(double charge) {
+		this.charge = charge;
+	}
+
+	public double getPlanned() {
+		return planned;
+	}
+
+	public void setPlanned(double planned) {
+		this.planned = planned;
+	}
+
+	public double getBudget() {
+		return budget;
+	}
+
+	public void setBudget(double budget) {
+		this.budget = budget;
+	}
+
+	public double getCostToComplete() {
+		return costToComplete;
+	}
+
+	public void setCostToComplete(double costToComplete) {
+		this.costToComplete = costToComplete;
+	}
+
+	public double getCostAtCompletion() {
+		return costAtCompletion;
+	}
+
+	public void setCostAtCompletion(double costAtCompletion) {
+		this.costAtCompletion = costAtCompletion;
+	}
+
+	public double getInitialEstimate() {
+		return initialEstimate;
+	}
+
+	public void setInitialEstimate(double initialEstimate) {
+		this.initialEstimate = initialEstimate;
+	}
+
+	public Map<Integer, EmployeeCharge> getDetails() {
+		return details;
+	}
+
+	public void setDetails(Map<Integer, EmployeeCharge> details) {
+		this.details = details;
+	}
+
+}
@@ -22,6 +22,7 @@ import javax.persistence.TemporalType;
 
 import org.hibernate.annotations.Type;
 
+import com.yojana.helpers.PackedHoursHelper;
 import com.yojana.model.auditable.Audit;
 import com.yojana.model.auditable.AuditListener;
 import com.yojana.model.auditable.Auditable;
@@ -129,6 +130,19 @@ public class Timesheet implements Auditable, Serializable {
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private Set<TimesheetRow> timesheetRows;
     
+    /**
+     * Total decihours over all rows, maintained by TimesheetRowManager
+     */
+    @Column(name = "TotalDecihours", insertable = false, updatable = false)
+    private int totalDecihours;
+    
+    /**
+     * Decihours of every day over all rows, packed the same way as
+     * TimesheetRow hours, maintained by TimesheetRowManager
+     */
+    @Column(name = "DailyDecihours", insertable = false, updatable = false)
+    private long dailyDecihours;
+    
     /**
      * no parameter constructor
      */
@@ -241,6 +255,26 @@ public class Timesheet implements Auditable, Serializable {
 		this.status = status;
 	}
 
+	/**
+	 * @return the hours charged over all rows
+	 */
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	public float getTotalHours() {
+		return TimesheetRow.toHour(totalDecihours);
+	}
+
+	/**
+	 * @return the hours charged on each day over all rows, starting at Saturday
+	 */
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	public float[] getDailyHours() {
+		float[] hours = new float[TimesheetRow.DAYS_IN_WEEK];
+		for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+			hours[d] = TimesheetRow.toHour(PackedHoursHelper.getDecihour(dailyDecihours, d));
+		}
+		return hours;
+	}
+
 	public Set<TimesheetRow> getTimesheetRows() {
 		return timesheetRows;
 	}
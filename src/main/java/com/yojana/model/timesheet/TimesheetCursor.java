@@ -0,0 +1,70 @@
+package com.yojana.model.timesheet;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a timesheet listing ordered by (endWeek, id), handed to
+ * clients as an opaque string so the next page can continue after it.
+ *
+ * @author Adam Krawchuk
+ * @version 1.0
+ */
+public class TimesheetCursor {
+
+	private static final String SEPARATOR = "|";
+
+	private final LocalDate endWeek;
+
+	private final UUID id;
+
+	public TimesheetCursor(LocalDate endWeek, UUID id) {
+		this.endWeek = endWeek;
+		this.id = id;
+	}
+
+	/**
+	 * Cursor pointing at the given timesheet.
+	 *
+	 * @param timesheet last timesheet of a page
+	 */
+	public TimesheetCursor(Timesheet timesheet) {
+		this(timesheet.getEndWeek(), timesheet.getId());
+	}
+
+	public LocalDate getEndWeek() {
+		return endWeek;
+	}
+
+	public UUID getId() {
+		return id;
+	}
+
+	/**
+	 * @return the opaque form of the cursor
+	 */
+	public String encode() {
+		String raw = endWeek + SEPARATOR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads a cursor produced by encode().
+	 *
+	 * @param cursor opaque cursor
+	 * @return the decoded cursor
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public static TimesheetCursor decode(String cursor) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int separator = raw.indexOf(SEPARATOR);
+			return new TimesheetCursor(LocalDate.parse(raw.substring(0, separator)),
+					UUID.fromString(raw.substring(separator + 1)));
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Malformed cursor", e);
+		}
+	}
+}
@@ -19,7 +19,9 @@ import javax.persistence.Table;
 
 import org.hibernate.annotations.Type;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.yojana.helpers.PackedHoursHelper;
 import com.yojana.model.project.Project;
 import com.yojana.model.project.WorkPackage;
 
@@ -98,6 +100,23 @@ public class TimesheetRow implements Serializable {
 	@Column(name = "Hours")
 	private long packedHours;
 
+	/**
+	 * Total decihours of the row. Generated by the database from the Hours
+	 * column and only used for aggregate queries, use getDeciSum() on a
+	 * loaded row.
+	 */
+	@Column(name = "TotalDecihours", insertable = false, updatable = false)
+	private int totalDecihours;
+
+	/**
+	 * Amount the row added to the work package rollups, its hours at the
+	 * charge rate of the employee when it was written. Taken off again as
+	 * is when the row changes, whatever the charge rate is by then.
+	 */
+	@JsonIgnore
+	@Column(name = "Charge", insertable = false, updatable = false)
+	private double charge;
+
 	/*
 	 * Any notes added to the timesheet row. private String notes;
 	 */
@@ -155,23 +174,12 @@ public class TimesheetRow implements Serializable {
 	/** Version number. */
 	private static final long serialVersionUID = 4L;
 
-	/** mask for packing, unpacking hours. */
-	private static final long[] MASK = { 0xFFL, 0xFF00L, 0xFF0000L, 0xFF000000L, 0xFF00000000L, 0xFF0000000000L,
-			0xFF000000000000L };
-
-	/** mask for packing, unpacking hours. */
-	private static final long[] UMASK = { 0xFFFFFFFFFFFFFF00L, 0xFFFFFFFFFFFF00FFL, 0xFFFFFFFFFF00FFFFL,
-			0xFFFFFFFF00FFFFFFL, 0xFFFFFF00FFFFFFFFL, 0xFFFF00FFFFFFFFFFL, 0xFF00FFFFFFFFFFFFL };
-
 	/** 2**8. */
 	private static final long BYTE_BASE = 256;
 
 	/** max number of deci-hours per day. */
 	private static final int DECI_MAX = 240;
 
-	/** number of bits in a byte. */
-	private static final int BITS_PER_BYTE = 8;
-
 	// ---------------------------------------- --------------
 	// end of data members for packing/unpacking
 	// --------------------------------------------------------
@@ -180,6 +188,8 @@ public class TimesheetRow implements Serializable {
 	public static final int DAYS_IN_WEEK = 7;
 	public static final double HOURS_IN_DAY = 24.0;
 	public static final int DECIHOURS_IN_DAY = 240;
+	/** highest row index of a timesheet, as the RowIndexLimit check allows */
+	public static final int MAX_INDEX = 6;
 
 	// -------------
 	// end of static fields
@@ -358,18 +368,22 @@ public class TimesheetRow implements Serializable {
 		return toHour(getDeciSum());
 	}
 
+	/**
+	 * Amount charged to the work package for this row.
+	 * 
+	 * @return the hours at the charge rate when the row was written
+	 */
+	public double getCharge() {
+		return charge;
+	}
+
 	/**
 	 * Adds total hours for this timesheet row.
 	 * 
 	 * @return total hours in units of decihours
 	 */
 	public int getDeciSum() {
-		int[] charges = getDecihours();
-		int sum = 0;
-		for (int charge : charges) {
-			sum += charge;
-		}
-		return sum;
+		return PackedHoursHelper.sum(packedHours);
 	}
 
 	/**
@@ -382,7 +396,7 @@ public class TimesheetRow implements Serializable {
 		if (d < FIRST_DAY || d > LAST_DAY) {
 			throw new IllegalArgumentException("day number out of range");
 		}
-		return (int) ((packedHours & MASK[d]) >> d * BITS_PER_BYTE);
+		return PackedHoursHelper.getDecihour(packedHours, d);
 	}
 
 	/**
@@ -399,7 +413,7 @@ public class TimesheetRow implements Serializable {
 		if (charge < 0 || charge > DECI_MAX) {
 			throw new IllegalArgumentException("charge out of range, " + "must be 0 .. 240");
 		}
-		packedHours = packedHours & UMASK[d] | (long) charge << (d * BITS_PER_BYTE);
+		packedHours = PackedHoursHelper.setDecihour(packedHours, d, charge);
 	}
 
 	/**
@@ -477,18 +491,10 @@ public class TimesheetRow implements Serializable {
 		if (packedDecihours < 0) {
 			throw new IllegalArgumentException("improperly formed packedHours < 0");
 		}
-		long check = packedDecihours;
-		for (int i = FIRST_DAY; i <= LAST_DAY; i++) {
-			if (check % BYTE_BASE > DECIHOURS_IN_DAY) {
-				throw new IllegalArgumentException("improperly formed packedHours");
-			}
-			check /= BYTE_BASE;
-		}
-		// top byte must be zero
-		if (check > 0) {
+		// top byte must be zero and no day over DECIHOURS_IN_DAY
+		if (!PackedHoursHelper.isValid(packedDecihours)) {
 			throw new IllegalArgumentException("improperly formed packedHours");
 		}
-
 	}
 
 	public WorkPackage getWorkPackage() {
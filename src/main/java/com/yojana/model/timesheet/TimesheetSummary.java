@@ -0,0 +1,58 @@
+package com.yojana.model.timesheet;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Line of a timesheet approver's inbox, read as a projection so neither
+ * the timesheet nor its rows are loaded as entities.
+ *
+ * @author Adam Krawchuk
+ * @version 1.0
+ */
+public class TimesheetSummary implements Serializable {
+
+	private static final long serialVersionUID = 2276310473187452915L;
+
+	private UUID id;
+
+	private int empId;
+
+	private String empName;
+
+	@JsonSerialize(using = LocalDateSerializer.class)
+	private LocalDate endWeek;
+
+	private float totalHours;
+
+	public TimesheetSummary(UUID id, int empId, String empName, LocalDate endWeek, int totalDecihours) {
+		this.id = id;
+		this.empId = empId;
+		this.empName = empName;
+		this.endWeek = endWeek;
+		this.totalHours = TimesheetRow.toHour(totalDecihours);
+	}
+
+	public UUID getId() {
+		return id;
+	}
+
+	public int getEmpId() {
+		return empId;
+	}
+
+	public String getEmpName() {
+		return empName;
+	}
+
+	public LocalDate getEndWeek() {
+		return endWeek;
+	}
+
+	public float getTotalHours() {
+		return totalHours;
+	}
+}
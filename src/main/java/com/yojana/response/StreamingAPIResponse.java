@@ -0,0 +1,81 @@
+package com.yojana.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes the same {errors, data} envelope as APIResponse, but with a
+ * single list in data whose elements are serialized one at a time as
+ * they are read from the database, so the full list is never in memory.
+ */
+public class StreamingAPIResponse implements StreamingOutput {
+
+	// flushing is done in batches below, not after every row
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+	/** flush the generator every this many rows */
+	private static final int FLUSH_INTERVAL = 100;
+
+	/**
+	 * Source of the rows, called while the response is being written.
+	 * Implementations must read the rows inside their own transaction.
+	 */
+	@FunctionalInterface
+	public interface RowSource<T> {
+		void forEach(Consumer<? super T> action);
+	}
+
+	private final String name;
+
+	private final RowSource<?> source;
+
+	/**
+	 * @param name   key of the list inside data
+	 * @param source rows of the list
+	 */
+	public StreamingAPIResponse(String name, RowSource<?> source) {
+		this.name = name;
+		this.source = source;
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException, WebApplicationException {
+		final JsonGenerator gen = MAPPER.getFactory().createGenerator(output, JsonEncoding.UTF8)
+				.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		gen.writeStartObject();
+		gen.writeArrayFieldStart("errors");
+		gen.writeEndArray();
+		gen.writeObjectFieldStart("data");
+		gen.writeArrayFieldStart(name);
+		try {
+			final int[] count = { 0 };
+			source.forEach(row -> {
+				try {
+					MAPPER.writeValue(gen, row);
+					if (++count[0] % FLUSH_INTERVAL == 0) {
+						gen.flush();
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		gen.writeEndArray();
+		gen.writeEndObject();
+		gen.writeEndObject();
+		gen.close();
+	}
+}
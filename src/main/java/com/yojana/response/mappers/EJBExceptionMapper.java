@@ -0,0 +1,41 @@
+package com.yojana.response.mappers;
+
+import javax.ejb.EJBException;
+import javax.persistence.PersistenceException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yojana.response.errors.ErrorMessage;
+
+/**
+ * Managers are EJBs, so persistence failures reach the services wrapped
+ * in an EJBException. Unwraps them so they get the same responses as
+ * PersistenceExceptionMapper gives.
+ */
+@Provider
+public class EJBExceptionMapper implements ExceptionMapper<EJBException> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EJBExceptionMapper.class);
+
+  private final PersistenceExceptionMapper persistenceMapper = new PersistenceExceptionMapper();
+
+  public Response toResponse(final EJBException exception) {
+    for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+      if (cause instanceof PersistenceException) {
+        return persistenceMapper.toResponse((PersistenceException) cause);
+      }
+    }
+    // the message holds container and SQL details, keep them in the log
+    LOGGER.error("EJB failure", exception);
+    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+        .type(MediaType.APPLICATION_JSON_TYPE)
+        .entity(new ErrorMessage(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), "Server failure",
+            "The request could not be completed."))
+        .build();
+  }
+}
@@ -3,6 +3,7 @@ package com.yojana.response.mappers;
 
 import java.util.ArrayList;
 
+import javax.persistence.OptimisticLockException;
 import javax.persistence.PersistenceException;
 import org.hibernate.exception.ConstraintViolationException;
 import javax.ws.rs.core.MediaType;
@@ -25,7 +26,16 @@ public class PersistenceExceptionMapper implements ExceptionMapper<PersistenceEx
   public Response toResponse(final PersistenceException exception) {
     LOGGER.debug("Persistence failure", exception);
     Response response;
-    if (exception.getCause() instanceof ConstraintViolationException) {
+    if (exception instanceof OptimisticLockException) {
+      APIResponse res = new APIResponse();
+      res.getErrors().add(new ErrorMessage(Response.Status.CONFLICT.getStatusCode(),
+          "Concurrent modification", "The record was changed by someone else, reload it and try again."));
+      response =
+          Response.status(Response.Status.CONFLICT)
+              .type(MediaType.APPLICATION_JSON_TYPE)
+              .entity(res)
+              .build();
+    } else if (exception.getCause() instanceof ConstraintViolationException) {
       final String details =
           "Violated "
               + ((ConstraintViolationException) exception.getCause()).getConstraintName()
@@ -49,11 +59,13 @@ public class PersistenceExceptionMapper implements ExceptionMapper<PersistenceEx
               .entity(res)
               .build();
     } else {
+      LOGGER.error("Persistence failure", exception);
       response =
           Response.status(Response.Status.INTERNAL_SERVER_ERROR)
               .type(MediaType.APPLICATION_JSON_TYPE)
               .entity(
-                  new ErrorMessage(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), "Persistence failure", exception.getMessage()))
+                  new ErrorMessage(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), "Persistence failure",
+                      "The request could not be completed."))
               .build();
     }
 
@@ -7,30 +7,39 @@ import javax.enterprise.event.Observes;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 
-import com.yojana.access.CredentialManager;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.yojana.access.EmployeeManager;
-import com.yojana.model.employee.Credential;
+import com.yojana.helpers.JWTHelper;
 import com.yojana.model.employee.Employee;
 import com.yojana.security.annotations.AuthenticatedEmployee;
 
 @RequestScoped
 public class AuthenticatedEmployeeProducer {
-
-    @Inject
-    private CredentialManager credManager;
     
     @Inject
     private EmployeeManager empManager;
 
+    @Inject
+    // Verified tokens of earlier requests
+    private AuthenticationCache authCache;
+
     @Produces
     @RequestScoped
     @AuthenticatedEmployee
     private Employee authenticatedEmployee;
 
-    // Sets the authenticated employee in the database
-    public void handleAuthenticationEvent(@Observes @AuthenticatedEmployee String username) throws SQLException {
-        final Credential cred = credManager.find(username);
-        final Employee emp = empManager.find(cred.getEmpID());
+    // Sets the authenticated employee for the token of the request
+    public void handleAuthenticationEvent(@Observes @AuthenticatedEmployee String token) throws SQLException {
+        final Integer empId = authCache.get(token);
+        // loaded for every request, so changes to the employee are seen at once
+        Employee emp = empId == null ? null : empManager.find(empId);
+        if (emp == null) {
+            final JWTHelper helper = new JWTHelper();
+            // Throws if the token was not issued by the server
+            final DecodedJWT decoded = helper.verify(token);
+            emp = empManager.findByUsername(helper.getUsername(decoded));
+            authCache.put(token, emp.getId(), decoded.getExpiresAt());
+        }
         authenticatedEmployee = emp;
     }
 }
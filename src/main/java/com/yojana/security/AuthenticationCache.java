@@ -0,0 +1,94 @@
+package com.yojana.security;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Remembers which employee a verified token belongs to, so repeated
+ * requests with the same token skip verification and the username lookup.
+ * Only the employee id is kept, each request still loads its own Employee.
+ * Entries are keyed on the SHA-256 of the token, expire after a fixed
+ * time or when the token does, and are dropped as soon as the employee,
+ * its credential or a pay grade changes.
+ */
+@ApplicationScoped
+public class AuthenticationCache {
+
+    private static final int MAX_ENTRIES = 10000;
+    private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    // least recently used entry is evicted once the cache is full
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = -2391458238125405473L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Gets the employee id for a token, null if unknown or expired
+    public Integer get(String token) {
+        final String key = DigestUtils.sha256Hex(token);
+        synchronized (entries) {
+            final Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.empId;
+        }
+    }
+
+    // Remembers the employee of a verified token, tokenExpiresAt is null for tokens that never expire
+    public void put(String token, int empId, Date tokenExpiresAt) {
+        long expiresAt = System.currentTimeMillis() + TTL_MILLIS;
+        if (tokenExpiresAt != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiresAt.getTime());
+        }
+        final Entry entry = new Entry(empId, expiresAt);
+        final String key = DigestUtils.sha256Hex(token);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    // Drops every token of an employee
+    public void invalidate(int empId) {
+        synchronized (entries) {
+            final Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().empId == empId) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    // Drops every token, for changes that may affect any employee
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static final class Entry {
+        private final int empId;
+        private final long expiresAt;
+
+        Entry(int empId, long expiresAt) {
+            this.empId = empId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -15,7 +15,6 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
 
-import com.yojana.helpers.JWTHelper;
 import com.yojana.security.annotations.Secured;
 
 /**
@@ -32,7 +31,7 @@ public class AuthenticationFilter implements ContainerRequestFilter {
 
     @Inject
     @com.yojana.security.annotations.AuthenticatedEmployee
-    // Event to be fired on successful authentication
+    // Event carrying the bearer token, the observer verifies it and loads the employee
     private Event<String> userAuthenticatedEvent;
 
     @Override
@@ -80,9 +79,8 @@ public class AuthenticationFilter implements ContainerRequestFilter {
 
     // Validates the token
     private void validateToken(String token) throws Exception {
-        // Check if the token was issued by the server and if it's not expired
-        // Throw an Exception if the token is invalid
-        JWTHelper jwtHelper = new JWTHelper();
-        userAuthenticatedEvent.fire(jwtHelper.validate(token));
+        // The observer checks if the token was issued by the server (unless it
+        // has already seen it) and throws an Exception if the token is invalid
+        userAuthenticatedEvent.fire(token);
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.yojana.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Logs response bodies off the request thread. Requests put their captured
+ * bytes in a fixed size ring without ever waiting; a background task on the
+ * container's scheduled executor decodes and logs them. Bodies offered while
+ * the ring is full are dropped and only counted.
+ */
+@ApplicationScoped
+public class BodyLogWriter {
+
+    private static final Logger logger = Logger.getLogger(EntityLoggingFilter.class.getName());
+
+    /** number of slots in the ring, a power of two */
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final long DRAIN_INTERVAL_MILLIS = 250;
+
+    @Resource
+    private ManagedScheduledExecutorService executor;
+
+    private final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(CAPACITY);
+
+    // next slot a request claims
+    private final AtomicLong tail = new AtomicLong();
+
+    // next slot to log, only moved by the drain
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private ScheduledFuture<?> drainer;
+
+    @PostConstruct
+    void start() {
+        drainer = executor.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        drainer.cancel(false);
+        drain();
+    }
+
+    // Queues a body to be logged, false if the ring is full and it was dropped
+    public boolean offer(String request, int status, byte[] body, int length, long size) {
+        final Entry entry = new Entry(request, status, body, length, size);
+        while (true) {
+            final long t = tail.get();
+            if (t - head >= CAPACITY) {
+                dropped.increment();
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.set((int) t & MASK, entry);
+                return true;
+            }
+        }
+    }
+
+    /*
+     * A claimed slot stays empty until its request has filled it, the drain
+     * stops there and picks it up on its next run. Slots are emptied before
+     * head moves past them so a request never overwrites an unlogged entry.
+     */
+    private synchronized void drain() {
+        try {
+            while (true) {
+                final long h = head;
+                final Entry entry = slots.get((int) h & MASK);
+                if (entry == null) {
+                    break;
+                }
+                slots.set((int) h & MASK, null);
+                head = h + 1;
+                logger.info(entry.format());
+            }
+            final long lost = dropped.sumThenReset();
+            if (lost > 0) {
+                logger.warning(lost + " response bodies were not logged, the log buffer was full");
+            }
+        } catch (RuntimeException e) {
+            // an exception would cancel the scheduled drain
+            logger.log(Level.WARNING, "Could not log response body", e);
+        }
+    }
+
+    private static final class Entry {
+        private final String request;
+        private final int status;
+        private final byte[] body;
+        private final int length;
+        private final long size;
+
+        Entry(String request, int status, byte[] body, int length, long size) {
+            this.request = request;
+            this.status = status;
+            this.body = body;
+            this.length = length;
+            this.size = size;
+        }
+
+        String format() {
+            final StringBuilder sb = new StringBuilder(request.length() + length + 32);
+            sb.append(request).append(' ').append(status).append(" (").append(size).append(" bytes)\n");
+            sb.append(new String(body, 0, length, StandardCharsets.UTF_8));
+            if (size > length) {
+                sb.append("...more...");
+            }
+            return sb.toString();
+        }
+    }
+}
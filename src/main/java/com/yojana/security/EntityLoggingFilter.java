@@ -1,112 +1,129 @@
 package com.yojana.security;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.util.logging.Logger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.annotation.Priority;
+import javax.inject.Inject;
 import javax.ws.rs.WebApplicationException;
-import javax.ws.rs.client.ClientRequestContext;
-import javax.ws.rs.client.ClientRequestFilter;
-import javax.ws.rs.client.ClientResponseContext;
-import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.ext.Provider;
 import javax.ws.rs.ext.WriterInterceptor;
 import javax.ws.rs.ext.WriterInterceptorContext;
 
+import com.yojana.model.employee.Credential;
+import com.yojana.services.employee.AuthenticationService;
+import com.yojana.services.employee.CredentialService;
+
+/**
+ * Logs the start of response bodies. Every error response is logged, a
+ * successful one only once every {@link #SAMPLE_EVERY} responses of its
+ * endpoint. Only the first {@link #MAX_ENTITY_SIZE} bytes are kept and
+ * they are logged by {@link BodyLogWriter} after the response is sent.
+ * Bodies that can carry passwords or tokens are never logged.
+ */
 @Priority(Integer.MIN_VALUE)
 @Provider
-public class EntityLoggingFilter implements ClientRequestFilter, ClientResponseFilter, WriterInterceptor {
+public class EntityLoggingFilter implements ContainerResponseFilter, WriterInterceptor {
 
-    private static final Logger logger = Logger.getLogger(EntityLoggingFilter.class.getName());
-    private static final String ENTITY_STREAM_PROPERTY = "EntityLoggingFilter.entityStream";
-    private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
-    private final int maxEntitySize = 1024 * 8;
+    private static final String REQUEST_PROPERTY = "EntityLoggingFilter.request";
+    private static final String STATUS_PROPERTY = "EntityLoggingFilter.status";
 
-    private void log(StringBuilder sb) {
-        logger.info(sb.toString());
-    }
+    /** bytes of a body that are logged */
+    private static final int MAX_ENTITY_SIZE = 1024 * 8;
 
-    private InputStream logInboundEntity(final StringBuilder b, InputStream stream, final Charset charset) throws IOException {
-        if (!stream.markSupported()) {
-            stream = new BufferedInputStream(stream);
-        }
-        stream.mark(maxEntitySize + 1);
-        final byte[] entity = new byte[maxEntitySize + 1];
-        final int entitySize = stream.read(entity);
-        b.append(new String(entity, 0, Math.min(entitySize, maxEntitySize), charset));
-        if (entitySize > maxEntitySize) {
-            b.append("...more...");
-        }
-        b.append('\n');
-        stream.reset();
-        return stream;
-    }
+    /** one in this many successful responses of an endpoint is logged */
+    private static final int SAMPLE_EVERY = 100;
 
-    @Override
-    public void filter(ClientRequestContext requestContext) throws IOException {
-        if (requestContext.hasEntity()) {
-            final OutputStream stream = new LoggingStream(requestContext.getEntityStream());
-            requestContext.setEntityStream(stream);
-            requestContext.setProperty(ENTITY_STREAM_PROPERTY, stream);
-        }
-    }
+    /** resources whose bodies hold passwords or tokens */
+    private static final Set<Class<?>> UNLOGGED_RESOURCES = new HashSet<>(Arrays.asList(
+            AuthenticationService.class, CredentialService.class));
+
+    private final Map<String, AtomicLong> responses = new ConcurrentHashMap<>();
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Inject
+    private BodyLogWriter writer;
 
     @Override
-    public void filter(ClientRequestContext requestContext,
-            ClientResponseContext responseContext) throws IOException {
-        final StringBuilder sb = new StringBuilder();
-        if (responseContext.hasEntity()) {
-            responseContext.setEntityStream(logInboundEntity(sb, responseContext.getEntityStream(),
-                    DEFAULT_CHARSET));
-            log(sb);
+    public void filter(ContainerRequestContext requestContext,
+            ContainerResponseContext responseContext) throws IOException {
+        if (!responseContext.hasEntity() || responseContext.getEntity() instanceof Credential
+                || UNLOGGED_RESOURCES.contains(resourceInfo.getResourceClass())) {
+            return;
         }
-
+        final String endpoint = resourceInfo.getResourceMethod() == null ? "unmatched"
+                : resourceInfo.getResourceClass().getSimpleName() + "." + resourceInfo.getResourceMethod().getName();
+        final int status = responseContext.getStatus();
+        if (status < 400
+                && responses.computeIfAbsent(endpoint, key -> new AtomicLong()).getAndIncrement() % SAMPLE_EVERY != 0) {
+            return;
+        }
+        requestContext.setProperty(REQUEST_PROPERTY, requestContext.getMethod() + " "
+                + requestContext.getUriInfo().getPath() + " " + endpoint);
+        requestContext.setProperty(STATUS_PROPERTY, status);
     }
 
     @Override
     public void aroundWriteTo(WriterInterceptorContext context)
             throws IOException, WebApplicationException {
-        final LoggingStream stream = (LoggingStream) context.getProperty(ENTITY_STREAM_PROPERTY);
-        context.proceed();
-        if (stream != null) {
-            log(stream.getStringBuilder(DEFAULT_CHARSET));
+        final String request = (String) context.getProperty(REQUEST_PROPERTY);
+        if (request == null) {
+            context.proceed();
+            return;
+        }
+        final LoggingStream stream = new LoggingStream(context.getOutputStream());
+        context.setOutputStream(stream);
+        try {
+            context.proceed();
+        } finally {
+            writer.offer(request, (Integer) context.getProperty(STATUS_PROPERTY), stream.prefix, stream.captured,
+                    stream.size);
         }
     }
 
-    private class LoggingStream extends FilterOutputStream {
+    /* passes every write through, keeping a copy of the first bytes */
+    private static class LoggingStream extends FilterOutputStream {
 
-        private final StringBuilder sb = new StringBuilder();
-        private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        private final byte[] prefix = new byte[MAX_ENTITY_SIZE];
+        private int captured;
+        private long size;
 
         LoggingStream(OutputStream out) {
             super(out);
         }
 
-        StringBuilder getStringBuilder(Charset charset) {
-            // write entity to the builder
-            final byte[] entity = baos.toByteArray();
-
-            sb.append(new String(entity, 0, entity.length, charset));
-            if (entity.length > maxEntitySize) {
-                sb.append("...more...");
+        @Override
+        public void write(final int i) throws IOException {
+            if (captured < prefix.length) {
+                prefix[captured++] = (byte) i;
             }
-            sb.append('\n');
-
-            return sb;
+            size++;
+            out.write(i);
         }
 
         @Override
-        public void write(final int i) throws IOException {
-            if (baos.size() <= maxEntitySize) {
-                baos.write(i);
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            final int n = Math.min(len, prefix.length - captured);
+            if (n > 0) {
+                System.arraycopy(b, off, prefix, captured, n);
+                captured += n;
             }
-            out.write(i);
+            size += len;
+            out.write(b, off, len);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.yojana.services.cache;
+
+import javax.inject.Inject;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.yojana.access.CacheStatisticsManager;
+import com.yojana.access.HoursCubeManager;
+import com.yojana.access.ReportJobManager;
+import com.yojana.model.employee.Employee;
+import com.yojana.response.APIResponse;
+import com.yojana.security.annotations.AuthenticatedEmployee;
+import com.yojana.security.annotations.Secured;
+
+@Secured
+@Path("/cache")
+public class CacheService {
+
+    @Inject
+    private CacheStatisticsManager cacheManager;
+
+    @Inject
+    private HoursCubeManager cubeManager;
+
+    @Inject
+    private ReportJobManager reportJobManager;
+
+    @Inject
+    @AuthenticatedEmployee
+    // Gets the authenticated employee
+    private Employee authEmployee;
+
+    @GET
+    @Path("/statistics")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Gets the hit and miss counts of the entity and query caches
+    public Response getStatistics() {
+        APIResponse res = new APIResponse();
+        if (!authEmployee.isAdmin()) {
+            return Response.status(Response.Status.FORBIDDEN).entity(res).build();
+        }
+        res.getData().put("statistics", cacheManager.getStatistics());
+        return Response.ok().entity(res).build();
+    }
+
+    @DELETE
+    @Produces(MediaType.APPLICATION_JSON)
+    // Empties the entity and query caches, the in-memory hours cubes and the cached reports
+    public Response evictAll() {
+        APIResponse res = new APIResponse();
+        if (!authEmployee.isAdmin()) {
+            return Response.status(Response.Status.FORBIDDEN).entity(res).build();
+        }
+        cacheManager.evictAll();
+        cubeManager.evictAll();
+        reportJobManager.evictAll();
+        return Response.ok().entity(res).build();
+    }
+}
@@ -1,9 +1,5 @@
 package com.yojana.services.employee;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 import javax.inject.Inject;
 import javax.transaction.Transactional;
 import javax.ws.rs.Consumes;
@@ -21,6 +17,7 @@ import com.yojana.access.EmployeeManager;
 import com.yojana.model.employee.Credential;
 import com.yojana.model.employee.Employee;
 import com.yojana.response.APIResponse;
+import com.yojana.response.StreamingAPIResponse;
 import com.yojana.response.errors.ErrorMessageBuilder;
 import com.yojana.security.annotations.AuthenticatedEmployee;
 import com.yojana.security.annotations.Secured;
@@ -87,12 +84,10 @@ public class CredentialService {
 	@Transactional
 	public Response getAll() {
 	    APIResponse res = new APIResponse();
-		final List<Credential> credentials = credManager.getAll();
 		if(!authEmployee.isAdmin() && !authEmployee.isProjectManager()) {
             return Response.status(Response.Status.FORBIDDEN).entity(res).build();
         }
-    	Map<String, Object> data = new HashMap<String, Object>();
-        data.put("credentials", credentials);
-        return Response.ok().entity(new APIResponse(data)).build();
+		// Credentials are written out as they are read
+        return Response.ok().entity(new StreamingAPIResponse("credentials", credManager::forEach)).build();
 	}
 }
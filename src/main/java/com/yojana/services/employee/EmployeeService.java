@@ -25,6 +25,7 @@ import com.yojana.model.employee.Employee;
 import com.yojana.model.employee.PayGrade;
 import com.yojana.model.timesheet.Timesheet;
 import com.yojana.response.APIResponse;
+import com.yojana.response.StreamingAPIResponse;
 import com.yojana.response.errors.ErrorMessageBuilder;
 import com.yojana.security.annotations.AuthenticatedEmployee;
 import com.yojana.security.annotations.Secured;
@@ -151,13 +152,8 @@ public class EmployeeService {
         if(!authEmployee.isAdmin() && !authEmployee.isProjectManager() && !authEmployee.isHr()) {
             return Response.status(Response.Status.FORBIDDEN).entity(res).build();
         }
-		List<Employee> employees = employeeManager.getAll();
-		if (employees == null) {
-			res.getErrors().add(ErrorMessageBuilder.notFoundMultiple("employee", null));
-			return Response.status(Response.Status.NOT_FOUND).entity(res).build();
-		}
-        res.getData().put("employees", employees);
-        return Response.ok().entity(res).build();
+		// Employees are written out as they are read
+        return Response.ok().entity(new StreamingAPIResponse("employees", employeeManager::forEach)).build();
 	}
 	
 	@GET
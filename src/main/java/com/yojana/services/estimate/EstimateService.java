@@ -13,6 +13,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -87,9 +88,10 @@ public class EstimateService {
     
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAll() {
+    // Gets all estimates, without their rows if a summary is asked for
+    public Response getAll(@QueryParam("summary") Boolean summary) {
         final APIResponse res = new APIResponse();
-        List<Estimate> estimates = estimateManager.getAll();
+        List<Estimate> estimates = estimateManager.getAll(summary == null || !summary);
         if (estimates == null) {
             res.getErrors().add(ErrorMessageBuilder.notFoundMultiple("estimate", null));
             return Response.status(Response.Status.NOT_FOUND).entity(res).build();
@@ -0,0 +1,38 @@
+package com.yojana.services.metrics;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import com.yojana.metrics.MetricsRegistry;
+import com.yojana.model.employee.Employee;
+import com.yojana.security.annotations.AuthenticatedEmployee;
+import com.yojana.security.annotations.Secured;
+
+@Secured
+@Path("/metrics")
+public class MetricsService {
+
+    /** content type of the Prometheus text exposition format */
+    private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Inject
+    private MetricsRegistry registry;
+
+    @Inject
+    @AuthenticatedEmployee
+    // Gets the authenticated employee
+    private Employee authEmployee;
+
+    @GET
+    @Produces(PROMETHEUS_TEXT)
+    // Gets latency and SQL counts per endpoint for a Prometheus scraper, admins only
+    public Response scrape() {
+        if (!authEmployee.isAdmin()) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+        return Response.ok(registry.scrape()).build();
+    }
+}
@@ -2,7 +2,6 @@ package com.yojana.services.project;
 
 import java.net.URI;
 import java.util.List;
-import java.util.Set;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
@@ -21,11 +20,13 @@ import com.yojana.access.EstimateManager;
 import com.yojana.access.ProjectManager;
 import com.yojana.access.WorkPackageManager;
 import com.yojana.helpers.ProjectHelper;
+import com.yojana.helpers.WorkPackageHelper;
 import com.yojana.model.employee.Employee;
 import com.yojana.model.estimate.Estimate;
 import com.yojana.model.project.Project;
 import com.yojana.model.project.WorkPackage;
 import com.yojana.response.APIResponse;
+import com.yojana.response.StreamingAPIResponse;
 import com.yojana.response.errors.ErrorMessageBuilder;
 import com.yojana.security.annotations.AuthenticatedEmployee;
 import com.yojana.security.annotations.Secured;
@@ -90,12 +91,11 @@ public class ProjectService {
     // Gets a list of all timesheets
     public Response getAll() {
         final APIResponse res = new APIResponse();
-        List<Project> projects;
         if(authEmployee.isAdmin() || authEmployee.isProjectManager()) {
-            projects = projectManager.getAll();
-        } else {
-            projects = projectManager.getAllForEmployee(authEmployee.getId());
+            // Every project, written out as it is read
+            return Response.ok().entity(new StreamingAPIResponse("projects", projectManager::forEach)).build();
         }
+        List<Project> projects = projectManager.getAllForEmployee(authEmployee.getId());
         
         if (projects == null) {
             res.getErrors().add(ErrorMessageBuilder.notFoundMultiple("project", null));
@@ -137,7 +137,7 @@ public class ProjectService {
 	public Response getWorkPackages(@PathParam("id") String projectId,
 			@QueryParam("hierarchyLevel") Integer hierarchyLevel) {
 		APIResponse res = new APIResponse();
-		Set<WorkPackage> wps;
+		List<WorkPackage> wps;
 		if (hierarchyLevel == null) {
 			wps = wpManager.getAll(projectId);
 		} else {
@@ -153,17 +153,57 @@ public class ProjectService {
 	public Response getChildWPs(@PathParam("id") String projectId, 
 			@PathParam("wpId") String wpId) {
 		APIResponse res = new APIResponse();
-		Set<WorkPackage> wps = wpManager.getChildWPs(projectId, wpId);
+		List<WorkPackage> wps = wpManager.getChildWPs(projectId, wpId);
 		res.getData().put("workPackages", wps);
 		return Response.ok().entity(res).build();
 	}
+	
+	@GET
+	@Path("/{id}/workPackages/{wpId}/subtree")
+	@Produces("application/json")
+	// Gets a work package and its descendants, down to depth levels below it if given
+	public Response getSubtree(@PathParam("id") String projectId,
+			@PathParam("wpId") String wpId, @QueryParam("depth") Integer depth) {
+		APIResponse res = new APIResponse();
+		if (depth != null && depth < 0) {
+			res.getErrors().add(ErrorMessageBuilder.badRequest("Invalid depth", "depth must not be negative"));
+			return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+		}
+		try {
+			WorkPackageHelper.getSortKey(wpId);
+		} catch (IllegalArgumentException e) {
+			// no work package has an id beyond the sort key limits
+			res.getErrors().add(ErrorMessageBuilder.notFoundSingle("work package", wpId, null));
+			return Response.status(Response.Status.NOT_FOUND).entity(res).build();
+		}
+		List<WorkPackage> wps = wpManager.getSubtree(projectId, wpId, depth);
+		if (wps.isEmpty()) {
+			res.getErrors().add(ErrorMessageBuilder.notFoundSingle("work package", wpId, null));
+			return Response.status(Response.Status.NOT_FOUND).entity(res).build();
+		}
+		res.getData().put("workPackages", wps);
+		return Response.ok().entity(res).build();
+	}
+	
+	@GET
+	@Path("/{id}/workPackages/{wpId}/ancestors")
+	@Produces("application/json")
+	// Gets the ancestors of a work package, top level first
+	public Response getAncestors(@PathParam("id") String projectId,
+			@PathParam("wpId") String wpId) {
+		APIResponse res = new APIResponse();
+		res.getData().put("workPackages", wpManager.getAncestors(projectId, wpId));
+		return Response.ok().entity(res).build();
+	}
     
     @GET
     @Path("/projects/{projectId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllForProject(@PathParam("projectId") String projectId) {
+    // Gets the estimates of a project, without their rows if a summary is asked for
+    public Response getAllForProject(@PathParam("projectId") String projectId,
+            @QueryParam("summary") Boolean summary) {
         final APIResponse res = new APIResponse();
-        List<Estimate> estimates = estimateManager.getAllForProject(projectId);
+        List<Estimate> estimates = estimateManager.getAllForProject(projectId, summary == null || !summary);
         if (estimates == null) {
             res.getErrors().add(ErrorMessageBuilder.notFoundMultiple("estimate", null));
             return Response.status(Response.Status.NOT_FOUND).entity(res).build();
@@ -177,7 +217,7 @@ public class ProjectService {
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllWPsForResponsibleEngineer() {
         final APIResponse res = new APIResponse();
-        Set<WorkPackage> wps = wpManager.getAllForResponsibleEngineer(authEmployee.getId());
+        List<WorkPackage> wps = wpManager.getAllForResponsibleEngineer(authEmployee.getId());
         if (wps == null) {
             res.getErrors().add(ErrorMessageBuilder.notFoundMultiple("work package", null));
             return Response.status(Response.Status.NOT_FOUND).entity(res).build();
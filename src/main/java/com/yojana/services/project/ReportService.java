@@ -4,15 +4,25 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.Produces;
 import javax.inject.Inject;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
 
+import com.yojana.access.HoursCubeManager;
 import com.yojana.access.ProjectManager;
 
-import com.yojana.access.ReportManager;
+import com.yojana.access.ReportJobManager;
 import com.yojana.model.project.Project;
+import com.yojana.model.report.HoursCube;
+import com.yojana.model.report.ReportJob;
+import com.yojana.model.report.ReportJobStatus;
+import com.yojana.model.report.ReportType;
+import com.yojana.model.report.WorkPackageReport;
 import com.yojana.response.APIResponse;
+import com.yojana.response.errors.ErrorMessageBuilder;
 import com.yojana.security.annotations.Secured;
 
 import java.util.List;
@@ -20,17 +30,22 @@ import com.yojana.model.employee.Employee;
 import com.yojana.security.annotations.AuthenticatedEmployee;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
+import java.util.UUID;
 
 @Secured
 @Path("/reports")
 public class ReportService {
     
     @Inject
-    private ReportManager reportManager;
+    private ReportJobManager reportJobManager;
     
     @Inject
     private ProjectManager projectManager;
+    
+    @Inject
+    private HoursCubeManager cubeManager;
         
     @Inject
     @AuthenticatedEmployee
@@ -56,7 +71,7 @@ public class ReportService {
     	LocalDate date = LocalDate.parse(dateString);
         APIResponse res = new APIResponse();
         
-        Map<String, Map<String, Object>> report = reportManager.generateMonthlyReport(projectId, date);
+        Map<String, WorkPackageReport> report = reportJobManager.getReport(projectId, ReportType.earnedValue, date);
         res.getData().put("report", report);
         
         return Response.ok().entity(res).build();
@@ -70,9 +85,118 @@ public class ReportService {
     	LocalDate date = LocalDate.parse(dateString);
         APIResponse res = new APIResponse();
         
-        Map<String, Map<String, Object>> report = reportManager.generateWeeklyReport(projectId, date);
+        Map<String, WorkPackageReport> report = reportJobManager.getReport(projectId, ReportType.weekly, date);
         res.getData().put("report", report);
         
         return Response.ok().entity(res).build();
     }
+    
+    @POST
+    @Path("/jobs/{type}/{projectId}/{date}")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Starts generating an earnedValue or weekly report in the background
+    public Response submitJob(@PathParam("type") String typeString, @PathParam("projectId") String projectId,
+    		@PathParam("date") String dateString) {
+        APIResponse res = new APIResponse();
+        final ReportType type;
+        final LocalDate date;
+        try {
+        	type = ReportType.valueOf(typeString);
+        	date = LocalDate.parse(dateString);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+        	res.getErrors().add(ErrorMessageBuilder.badRequest("Invalid report type or date", e.getMessage()));
+        	return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+        }
+        
+        ReportJob job = reportJobManager.submit(projectId, type, date, authEmployee.getId());
+        if (job == null) {
+        	// too many reports are being generated, the client can try again later
+        	return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(res).build();
+        }
+        res.getData().put("job", job);
+        
+        return Response.accepted().entity(res)
+        		.location(UriBuilder.fromResource(ReportService.class).path("jobs").path(job.getId().toString()).build())
+        		.build();
+    }
+    
+    @GET
+    @Path("/jobs/{jobId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Gets the status of a report job
+    public Response getJob(@PathParam("jobId") UUID jobId) {
+        APIResponse res = new APIResponse();
+        ReportJob job = findJob(jobId);
+        if (job == null) {
+        	res.getErrors().add(ErrorMessageBuilder.notFoundSingle("report job", jobId.toString(), null));
+        	return Response.status(Response.Status.NOT_FOUND).entity(res).build();
+        }
+        res.getData().put("job", job);
+        
+        return Response.ok().entity(res).build();
+    }
+    
+    @GET
+    @Path("/jobs/{jobId}/report")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Gets the report of a finished job, the job itself while it is still running
+    public Response getJobReport(@PathParam("jobId") UUID jobId) {
+        APIResponse res = new APIResponse();
+        ReportJob job = findJob(jobId);
+        if (job == null) {
+        	res.getErrors().add(ErrorMessageBuilder.notFoundSingle("report job", jobId.toString(), null));
+        	return Response.status(Response.Status.NOT_FOUND).entity(res).build();
+        }
+        if (job.getStatus() == ReportJobStatus.failed) {
+        	res.getData().put("job", job);
+        	return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(res).build();
+        }
+        if (job.getStatus() != ReportJobStatus.done) {
+        	res.getData().put("job", job);
+        	return Response.accepted().entity(res).build();
+        }
+        res.getData().put("report", job.getReport());
+        
+        return Response.ok().entity(res).build();
+    }
+    
+    @GET
+    @Path("/hours/{projectId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Hours of a project totalled by EMPLOYEE, WORK_PACKAGE, WEEK or DAY, read from the in-memory cube
+    public Response getHours(@PathParam("projectId") String projectId, @QueryParam("by") String by,
+    		@QueryParam("empId") Integer empId, @QueryParam("workPackageId") String workPackageId,
+    		@QueryParam("from") String from, @QueryParam("to") String to) {
+        APIResponse res = new APIResponse();
+        final HoursCube.Dimension dimension;
+        final LocalDate fromWeek;
+        final LocalDate toWeek;
+        try {
+        	dimension = by == null ? HoursCube.Dimension.WORK_PACKAGE : HoursCube.Dimension.valueOf(by);
+        	fromWeek = from == null ? null : LocalDate.parse(from);
+        	toWeek = to == null ? null : LocalDate.parse(to);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+        	res.getErrors().add(ErrorMessageBuilder.badRequest("Invalid grouping or date", e.getMessage()));
+        	return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+        }
+        
+        // only real projects get a cube, the id comes straight from the path
+        if (projectManager.find(projectId) == null) {
+        	res.getErrors().add(ErrorMessageBuilder.notFoundSingle("project", projectId, null));
+        	return Response.status(Response.Status.NOT_FOUND).entity(res).build();
+        }
+        HoursCube cube = cubeManager.getCube(projectId);
+        res.getData().put("hours", cube.sum(dimension, empId, workPackageId, fromWeek, toWeek));
+        
+        return Response.ok().entity(res).build();
+    }
+    
+    // Jobs can only be seen by whoever submitted them and admins
+    private ReportJob findJob(UUID jobId) {
+        ReportJob job = reportJobManager.find(jobId);
+        if (job == null || job.getSubmittedBy() != authEmployee.getId() && !authEmployee.isAdmin()) {
+        	return null;
+        }
+        return job;
+    }
 }
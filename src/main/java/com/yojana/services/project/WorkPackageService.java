@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.ejb.EJBException;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -33,6 +34,7 @@ import com.yojana.model.estimate.Estimate;
 import com.yojana.model.estimate.EstimateType;
 import com.yojana.model.project.Project;
 import com.yojana.model.project.WorkPackage;
+import com.yojana.model.project.WorkPackageImport;
 import com.yojana.model.project.WorkPackagePK;
 import com.yojana.response.APIResponse;
 import com.yojana.response.errors.ErrorMessageBuilder;
@@ -74,10 +76,20 @@ public class WorkPackageService {
 		if(!authEmployee.isAdmin() && !authEmployee.isProjectManager()) {
             return Response.status(Response.Status.FORBIDDEN).entity(res).build();
         }
+		if (wp.getParentWPId() != null && !wp.getParentWPId().isBlank()
+				&& WorkPackageHelper.getHierarchyLevel(wp.getParentWPId()) >= WorkPackageHelper.MAX_HIERARCHY_LEVEL) {
+			res.getErrors().add(ErrorMessageBuilder.badRequest("Work package too deep",
+					"at most " + (WorkPackageHelper.MAX_HIERARCHY_LEVEL + 1) + " levels"));
+			return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+		}
 		Project project = projectManager.find(projectId);
 		wp.setProject(project);
 		
-		wpManager.persist(wp);
+		try {
+			wpManager.persist(wp);
+		} catch (EJBException e) {
+			return outOfRange(res, e);
+		}
 		res.getData().put("id", wp.getWorkPackagePk().getId());
 		return Response.created(URI.create("/projects/" + projectId + "/workPackages/" + wp.getWorkPackagePk()
 			.getId()))
@@ -85,6 +97,66 @@ public class WorkPackageService {
 			.build();
 	}
 	
+	@POST
+	@Path("/{id}/workPackages/import")
+	@Consumes("application/json")
+	@Produces("application/json")
+	// Imports whole work package trees under the top level of the project
+	public Response importWPs(@PathParam("id") String projectId, List<WorkPackageImport> roots) {
+		APIResponse res = new APIResponse();
+		if(!authEmployee.isAdmin() && !authEmployee.isProjectManager()) {
+            return Response.status(Response.Status.FORBIDDEN).entity(res).build();
+        }
+		if (projectManager.find(projectId) == null) {
+			res.getErrors().add(ErrorMessageBuilder.notFoundSingle("project", projectId, null));
+			return Response.status(Response.Status.NOT_FOUND).entity(res).build();
+		}
+		if (roots == null || roots.isEmpty()) {
+			res.getErrors().add(ErrorMessageBuilder.badRequest("No work packages given", null));
+			return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+		}
+		try {
+			WorkPackageHelper.checkImport(roots);
+		} catch (IllegalArgumentException e) {
+			res.getErrors().add(ErrorMessageBuilder.badRequest("Work package tree too large", e.getMessage()));
+			return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+		}
+		List<WorkPackage> wps;
+		try {
+			wps = wpManager.importTree(projectId, roots);
+		} catch (EJBException e) {
+			return outOfRange(res, e);
+		}
+		List<String> rootIds = new ArrayList<String>();
+		for (WorkPackage wp: wps) {
+			if (wp.getParentWPId() == null) {
+				rootIds.add(wp.getWorkPackagePk().getId());
+			}
+		}
+		res.getData().put("ids", rootIds);
+		res.getData().put("count", wps.size());
+		return Response.created(URI.create("/projects/" + projectId + "/workPackages"))
+			.entity(res)
+			.build();
+	}
+	
+	@POST
+	@Path("/{id}/workPackages/import")
+	@Consumes("text/csv")
+	@Produces("application/json")
+	// Imports work package trees given as CSV, see WorkPackageHelper.parseImportCsv
+	public Response importWPsFromCsv(@PathParam("id") String projectId, String csv) {
+		List<WorkPackageImport> roots;
+		try {
+			roots = WorkPackageHelper.parseImportCsv(csv);
+		} catch (IllegalArgumentException e) {
+			APIResponse res = new APIResponse();
+			res.getErrors().add(ErrorMessageBuilder.badRequest("Invalid CSV", e.getMessage()));
+			return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+		}
+		return importWPs(projectId, roots);
+	}
+	
 	@PATCH
 	@Path("/{id}/workPackages/{wpId}")
 	@Consumes("application/json")
@@ -135,14 +207,24 @@ public class WorkPackageService {
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllEstimatesForWorkPackage(@PathParam("projectId") String projectId, 
             @PathParam("wpId") String workPackageId,
-            @QueryParam("type") EstimateType type) {
+            @QueryParam("type") EstimateType type, @QueryParam("latest") Boolean latest,
+            @QueryParam("summary") Boolean summary) {
         final APIResponse res = new APIResponse();
         List<Estimate> estimates = new ArrayList<Estimate>();
+        // rows are left out of a summary
+        final boolean withRows = summary == null || !summary;
         
-        if (type == null) {
-        	estimates = estimateManager.getAllForWorkPackage(workPackageId, projectId);
+        if (latest != null && latest) {
+        	// only the current estimate of the type, weekly unless given
+        	Estimate estimate = estimateManager.getLatestForWorkPackage(workPackageId, projectId,
+        			type == null ? EstimateType.weekly : type, withRows);
+        	if (estimate != null) {
+        		estimates.add(estimate);
+        	}
+        } else if (type == null) {
+        	estimates = estimateManager.getAllForWorkPackage(workPackageId, projectId, withRows);
         } else if (type == EstimateType.planned) {
-        	estimates = estimateManager.getPlannedEstimateForWorkPackage(workPackageId, projectId);
+        	estimates = estimateManager.getPlannedEstimateForWorkPackage(workPackageId, projectId, withRows);
         }
         if (estimates == null) {
             res.getErrors().add(ErrorMessageBuilder.notFoundMultiple("estimate", null));
@@ -187,4 +269,14 @@ public class WorkPackageService {
         res.getData().put("weeklyCharges", weeklyChargeMap);
         return Response.ok().entity(res).build();
     }
+	
+	/* an id that does not fit a sort key is a bad request, any other failure is passed on */
+	private static Response outOfRange(APIResponse res, EJBException e) {
+		if (!(e.getCause() instanceof IllegalArgumentException)) {
+			throw e;
+		}
+		res.getErrors().add(ErrorMessageBuilder.badRequest("Work package number out of range",
+				e.getCause().getMessage()));
+		return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+	}
 }
@@ -1,10 +1,16 @@
 package com.yojana.services.timesheet;
 
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.inject.Inject;
+import javax.transaction.Transactional;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -17,17 +23,23 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.jaxrs.annotation.JacksonFeatures;
 import com.yojana.access.EmployeeManager;
 import com.yojana.access.ProjectManager;
 import com.yojana.access.TimesheetManager;
 import com.yojana.access.TimesheetRowManager;
 import com.yojana.access.WorkPackageManager;
+import com.yojana.helpers.PackedHoursHelper;
 import com.yojana.model.employee.Employee;
 import com.yojana.model.project.WorkPackagePK;
 import com.yojana.model.timesheet.Timesheet;
+import com.yojana.model.timesheet.TimesheetCursor;
 import com.yojana.model.timesheet.TimesheetRow;
 import com.yojana.model.timesheet.TimesheetStatus;
+import com.yojana.model.timesheet.TimesheetSummary;
 import com.yojana.response.APIResponse;
+import com.yojana.response.StreamingAPIResponse;
 import com.yojana.response.errors.ErrorMessageBuilder;
 import com.yojana.security.annotations.AuthenticatedEmployee;
 import com.yojana.security.annotations.Secured;
@@ -36,6 +48,9 @@ import com.yojana.security.annotations.Secured;
 @Secured
 public class TimesheetService {
 
+	private static final int DEFAULT_PAGE_SIZE = 50;
+	private static final int MAX_PAGE_SIZE = 500;
+
 	@Inject
 	private ProjectManager projectManager;
 
@@ -144,19 +159,49 @@ public class TimesheetService {
 
 	@GET
 	@Produces("application/json")
-	// Gets a list of all timesheets
+	// Gets a list of timesheets, a page at a time when a limit or cursor is given
 	public Response getAll(@QueryParam("status") String status, @QueryParam("getAll") Boolean getAll,
-			@QueryParam("empId") Integer empId) {
+			@QueryParam("empId") Integer empId, @QueryParam("from") String from, @QueryParam("to") String to,
+			@QueryParam("cursor") String cursor, @QueryParam("limit") Integer limit,
+			@QueryParam("stream") Boolean stream) {
 		final APIResponse res = new APIResponse();
 		List<Timesheet> timesheets = null;
 		if (status != null && status.equals("submitted") && getAll != null && getAll) {
 			timesheets = timesheetManager.getAllSubmittedTimesheets();
-		} else if (status != null && status.equals("submitted")) {
+		} else if (status != null && status.equals("submitted") && empId == null) {
 			timesheets = timesheetManager.getAllSubmittedTimesheetsForApprover(authEmployee.getId());
-		} else if (empId != null) {
-			timesheets = timesheetManager.getAllForEmployee(empId);
 		} else {
-			timesheets = timesheetManager.getAll();
+			final TimesheetStatus statusFilter;
+			final TimesheetCursor after;
+			final LocalDate fromWeek;
+			final LocalDate toWeek;
+			try {
+				statusFilter = status == null ? null : TimesheetStatus.valueOf(status);
+				after = cursor == null ? null : TimesheetCursor.decode(cursor);
+				fromWeek = from == null ? null : LocalDate.parse(from);
+				toWeek = to == null ? null : LocalDate.parse(to);
+			} catch (IllegalArgumentException | DateTimeParseException e) {
+				res.getErrors().add(ErrorMessageBuilder.badRequest("Invalid status, cursor or date", e.getMessage()));
+				return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+			}
+			if (stream != null && stream) {
+				// Every matching timesheet, written out as it is read
+				return Response.ok().entity(new StreamingAPIResponse("timesheets",
+						action -> timesheetManager.forEach(statusFilter, empId, fromWeek, toWeek, action))).build();
+			}
+			if (limit == null && after == null) {
+				// Callers that do not page still get every match, as before paging was added
+				timesheets = timesheetManager.getAll(statusFilter, empId, fromWeek, toWeek);
+			} else {
+				final int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+				timesheets = timesheetManager.getPage(statusFilter, empId, fromWeek, toWeek, after, pageSize + 1);
+				String nextCursor = null;
+				if (timesheets.size() > pageSize) {
+					timesheets = timesheets.subList(0, pageSize);
+					nextCursor = new TimesheetCursor(timesheets.get(pageSize - 1)).encode();
+				}
+				res.getData().put("nextCursor", nextCursor);
+			}
 		}
 		if (timesheets == null) {
 			res.getErrors().add(ErrorMessageBuilder.notFoundMultiple("timesheet", null));
@@ -166,6 +211,38 @@ public class TimesheetService {
 		return Response.ok().entity(res).build();
 	}
 
+	@GET
+	@Path("/inbox")
+	@Produces("application/json")
+	// Gets the submitted timesheets waiting for the authenticated approver, or only their number
+	public Response getInbox(@QueryParam("count") Boolean countOnly, @QueryParam("cursor") String cursor,
+			@QueryParam("limit") Integer limit) {
+		final APIResponse res = new APIResponse();
+		if (countOnly != null && countOnly) {
+			res.getData().put("count", timesheetManager.countSubmittedForApprover(authEmployee.getId()));
+			return Response.ok().entity(res).build();
+		}
+		final TimesheetCursor after;
+		try {
+			after = cursor == null ? null : TimesheetCursor.decode(cursor);
+		} catch (IllegalArgumentException e) {
+			res.getErrors().add(ErrorMessageBuilder.badRequest("Invalid cursor", e.getMessage()));
+			return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+		}
+		final int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		List<TimesheetSummary> summaries = timesheetManager.getSubmittedSummariesForApprover(authEmployee.getId(),
+				after, pageSize + 1);
+		String nextCursor = null;
+		if (summaries.size() > pageSize) {
+			summaries = summaries.subList(0, pageSize);
+			TimesheetSummary last = summaries.get(pageSize - 1);
+			nextCursor = new TimesheetCursor(last.getEndWeek(), last.getId()).encode();
+		}
+		res.getData().put("timesheets", summaries);
+		res.getData().put("nextCursor", nextCursor);
+		return Response.ok().entity(res).build();
+	}
+
 	@POST
 	@Path("/{id}/rows")
 	@Consumes("application/json")
@@ -188,35 +265,61 @@ public class TimesheetService {
 	@Path("/{id}/rows")
 	@Consumes("application/json")
 	@Produces("application/json")
-	// Updates a timesheetrow from the database
-	public Response updateRow(@PathParam("id") UUID timesheetId, TimesheetRow row) {
+	@Transactional
+	// Inserts or replaces the given timesheetrows in one statement, a single row is also accepted
+	public Response updateRows(@PathParam("id") UUID timesheetId,
+			@JacksonFeatures(deserializationEnable = DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+			List<TimesheetRow> rows) {
 		final APIResponse res = new APIResponse();
-
-		TimesheetRow old = timesheetRowManager.find(timesheetId, row.getIndex());
-		boolean isNewRow = false;
-		if (old == null) {
-			old = new TimesheetRow();
-			isNewRow = true;
+		if (timesheetManager.find(timesheetId) == null) {
+			res.getErrors().add(ErrorMessageBuilder.notFoundSingle("timesheet", timesheetId.toString(), null));
+			return Response.status(Response.Status.NOT_FOUND).entity(res).build();
+		}
+		if (rows == null || rows.isEmpty()) {
+			res.getErrors().add(ErrorMessageBuilder.badRequest("No timesheet rows given", null));
+			return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
 		}
 
-		old.setProject(projectManager.find(row.getProjectId()));
-		old.setWorkPackage(workPackageManager.find(new WorkPackagePK(row.getWorkPackageId(), row.getProjectId())));
-
-		old.setHours(row.getHours());
-		old.setIndex(row.getIndex());
-		old.setNotes(row.getNotes());
-		old.setProjectId(row.getProjectId());
-		old.setTimesheet(timesheetManager.find(timesheetId));
-		old.setTimesheetId(timesheetId);
-		old.setWorkPackageId(row.getWorkPackageId());
-
-		if (isNewRow) {
-			timesheetRowManager.persist(old);
-		} else {
-			timesheetRowManager.merge(old);
+		Set<Integer> indexes = new HashSet<>();
+		Set<WorkPackagePK> keys = new LinkedHashSet<>();
+		for (TimesheetRow row: rows) {
+			if (row.getProjectId() == null || row.getWorkPackageId() == null) {
+				res.getErrors().add(ErrorMessageBuilder.badRequest("Missing project or work package",
+						"Row " + row.getIndex()));
+			} else if (!keys.add(new WorkPackagePK(row.getWorkPackageId(), row.getProjectId()))) {
+				// a timesheet holds one row per work package
+				res.getErrors().add(ErrorMessageBuilder.badRequest("Duplicate work package",
+						"Row " + row.getIndex()));
+			}
+			// checked here, mergeAll has already dropped the old rows when the database would reject them
+			if (row.getIndex() < 0 || row.getIndex() > TimesheetRow.MAX_INDEX) {
+				res.getErrors().add(ErrorMessageBuilder.badRequest("Invalid row index",
+						"Row " + row.getIndex() + " is not between 0 and " + TimesheetRow.MAX_INDEX));
+			} else if (!indexes.add(row.getIndex())) {
+				res.getErrors().add(ErrorMessageBuilder.badRequest("Duplicate row index", "Row " + row.getIndex()));
+			}
+			if (!PackedHoursHelper.isValid(row.getPackedHours())) {
+				res.getErrors().add(ErrorMessageBuilder.badRequest("Invalid hours",
+						"Row " + row.getIndex() + " has a day over " + TimesheetRow.HOURS_IN_DAY + " hours"));
+			}
 		}
-		return Response.created(URI.create("/timesheets/" + row.getTimesheetId() + "/rows/" + "project/"
-				+ row.getProjectId() + "/wp/" + row.getWorkPackageId())).entity(res).build();
+		Set<WorkPackagePK> existing = workPackageManager.findExisting(keys);
+		for (WorkPackagePK key: keys) {
+			if (!existing.contains(key)) {
+				res.getErrors().add(ErrorMessageBuilder.badRequest("Unknown work package",
+						key.getProjectID() + " " + key.getId()));
+			}
+		}
+		if (!res.getErrors().isEmpty()) {
+			return Response.status(Response.Status.BAD_REQUEST).entity(res).build();
+		}
+
+		timesheetRowManager.mergeAll(timesheetId, rows);
+		final TimesheetRow first = rows.get(0);
+		final URI location = rows.size() == 1 ? URI.create("/timesheets/" + timesheetId + "/rows/" + "project/"
+				+ first.getProjectId() + "/wp/" + first.getWorkPackageId())
+				: URI.create("/timesheets/" + timesheetId + "/rows");
+		return Response.created(location).entity(res).build();
 	}
 
 	@GET
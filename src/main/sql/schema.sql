@@ -41,7 +41,8 @@ CREATE TABLE Employee(
 			REFERENCES Employee(EmpID),
     CONSTRAINT FKEmployeeTimesheetApproverID
 		FOREIGN KEY (TimesheetApproverID)
-			REFERENCES Employee(EmpID)
+			REFERENCES Employee(EmpID),
+	INDEX IXEmployeeTimesheetApprover (TimesheetApproverID, EmpID)
 );
 
 DROP TABLE IF EXISTS Credential;
@@ -73,6 +74,9 @@ CREATE TABLE Timesheet(
 	CreatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
 	UpdatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     ApprovedAt TIMESTAMP,
+    -- totals over the rows, kept up to date by TimesheetRowManager
+    TotalDecihours INT NOT NULL DEFAULT 0,
+    DailyDecihours BIGINT NOT NULL DEFAULT 0,
 	CONSTRAINT PKTimesheet
 		PRIMARY KEY (TimesheetID),
 	CONSTRAINT FKTimesheetRevieweer 
@@ -84,7 +88,9 @@ CREATE TABLE Timesheet(
 			ON UPDATE CASCADE
         	ON DELETE CASCADE,
     CONSTRAINT UQ_Emp_EndWk
-		UNIQUE (EmpID, EndWeek)
+		UNIQUE (EmpID, EndWeek),
+	INDEX IXTimesheetEndWeek (EndWeek),
+	INDEX IXTimesheetStatusEmp (Status, EmpID, EndWeek)
 );
 
 
@@ -115,6 +121,7 @@ CREATE TABLE Project(
     Description TEXT,
     CreatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   	UpdatedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+	Version INT NOT NULL DEFAULT 0,
 	CONSTRAINT PKProject
 		PRIMARY KEY(ProjectID),
 	CONSTRAINT FKProjectProjectManagerID 
@@ -159,8 +166,11 @@ CREATE TABLE WorkPackage(
     DueAt DATE,
     Stat ENUM('complete', 'open', 'closed') NOT NULL DEFAULT 'open',
     HierarchyLevel INT NOT NULL DEFAULT 0,
+    SortKey VARCHAR(40) NOT NULL,
+    Version INT NOT NULL DEFAULT 0,
 	CONSTRAINT PKWorkPackage
 		PRIMARY KEY(WorkPackageID, ProjectID),
+	INDEX IXWorkPackageSortKey (ProjectID, SortKey),
 	CONSTRAINT FKWorkPackageProjectID 
 		FOREIGN KEY (ProjectID) REFERENCES Project(ProjectID)
 			ON UPDATE CASCADE
@@ -206,7 +216,8 @@ CREATE TABLE Estimate(
 	CONSTRAINT FKEstimateWorkPackageIDProjectID 
 		FOREIGN KEY (WorkPackageID, ProjectID) REFERENCES WorkPackage(WorkPackageID, ProjectID)
 			ON UPDATE CASCADE
-            ON DELETE CASCADE
+            ON DELETE CASCADE,
+	INDEX IXEstimateLatest (ProjectID, WorkPackageID, Type, ForWeek, CreatedAt)
 );
 
 DROP TABLE IF EXISTS EstimateRow;
@@ -234,6 +245,12 @@ CREATE TABLE TimesheetRow(
 	WorkPackageID VARCHAR(20) NOT NULL,
 	Notes TINYTEXT,
 	Hours BIGINT NOT NULL,
+	TotalDecihours INT AS (
+		(Hours & 255) + ((Hours >> 8) & 255) + ((Hours >> 16) & 255) + ((Hours >> 24) & 255)
+		+ ((Hours >> 32) & 255) + ((Hours >> 40) & 255) + ((Hours >> 48) & 255)
+	) STORED,
+	-- hours at the charge rate when the row was written, as added to WorkPackageRollup
+	Charge DOUBLE NOT NULL DEFAULT 0,
 	RowIndex INT NOT NULL DEFAULT 0
 		CONSTRAINT RowIndexLimit
 			CHECK (RowIndex >= 0 AND RowIndex <= 6),
@@ -249,6 +266,40 @@ CREATE TABLE TimesheetRow(
 		UNIQUE (WorkPackageID, ProjectID, TimesheetID)
 );
 
+DROP TABLE IF EXISTS WorkPackageRollup;
+CREATE TABLE WorkPackageRollup(
+	ProjectID VARCHAR(20) NOT NULL,
+	WorkPackageID VARCHAR(20) NOT NULL,
+	ChargeHours DOUBLE NOT NULL DEFAULT 0,
+	Charge DOUBLE NOT NULL DEFAULT 0,
+	Planned DOUBLE NOT NULL DEFAULT 0,
+	EstimateToComplete DOUBLE NOT NULL DEFAULT 0,
+	EstimateAtCompletion DOUBLE NOT NULL DEFAULT 0,
+	-- latest estimates of the work package itself, without its descendants
+	OwnPlanned DOUBLE NOT NULL DEFAULT 0,
+	OwnEstimateToComplete DOUBLE NOT NULL DEFAULT 0,
+	CONSTRAINT PKWorkPackageRollup
+		PRIMARY KEY(ProjectID, WorkPackageID),
+	CONSTRAINT FKWorkPackageRollupWorkPackageIDProjectID
+		FOREIGN KEY (WorkPackageID, ProjectID) REFERENCES WorkPackage(WorkPackageID, ProjectID)
+			ON UPDATE CASCADE
+            ON DELETE CASCADE
+);
+
+DROP TABLE IF EXISTS WorkPackageSequence;
+CREATE TABLE WorkPackageSequence(
+	ProjectID VARCHAR(20) NOT NULL,
+	-- empty for the top level work packages of the project
+	ParentWorkPackageID VARCHAR(20) NOT NULL DEFAULT '',
+	LastChild INT NOT NULL DEFAULT 0,
+	CONSTRAINT PKWorkPackageSequence
+		PRIMARY KEY(ProjectID, ParentWorkPackageID),
+	CONSTRAINT FKWorkPackageSequenceProjectID
+		FOREIGN KEY (ProjectID) REFERENCES Project(ProjectID)
+			ON UPDATE CASCADE
+            ON DELETE CASCADE
+);
+
 INSERT INTO PayGrade (LabourGrade, ChargeRate) VALUES ("PS", 3.50);
 
 INSERT INTO Employee (EmpID, EmpName, LabourGrade, TimesheetApproverID, IsHR, IsAdmin, IsProjectManager, IsTimesheetApprover)
@@ -267,12 +318,15 @@ INSERT INTO LeaveRequest VALUES ("31324000-0000-0000-0000-000000000000", 1, DATE
 
 INSERT INTO Project (ProjectID, ProjectManagerID, ProjectName, Budget, InitialEstimate, Description, Status) VALUES ("PR123", 1, "Stormfront", 100000.00, 90000.00, "A really cool project that should get an A", 'pending');
 
-INSERT INTO WorkPackage (WorkPackageID, ProjectID, ResponsibleEngineerID, WorkPackageName, Descrip, IsLowestLevel, Budget, InitialEstimate, DueAt, Stat) VALUES ("WP1", "PR123", 2, "DDL Creation", "Make a ddl", TRUE, 100.00, 89.00, DATE '2021/5/21', 'open');
-INSERT INTO WorkPackage (WorkPackageID, ProjectID, ResponsibleEngineerID, WorkPackageName, Descrip, IsLowestLevel, Budget, InitialEstimate, DueAt, Stat) VALUES ("WP2", "PR123", 1, "DDL Creation", "Make a ddl", TRUE, 100.00, 89.00, DATE '2021/5/21', 'open');
-INSERT INTO WorkPackage (WorkPackageID, ProjectID, ResponsibleEngineerID, WorkPackageName, Descrip, IsLowestLevel, Budget, InitialEstimate, DueAt, Stat) VALUES ("WP3", "PR123", 1, "DDL Creation", "Make a ddl", TRUE, 100.00, 89.00, DATE '2021/5/21', 'open');
-INSERT INTO WorkPackage (WorkPackageID, ProjectID, ResponsibleEngineerID, WorkPackageName, Descrip, IsLowestLevel, Budget, InitialEstimate, DueAt, Stat) VALUES ("WP4", "PR123", 2, "DDL Creation", "Make a ddl", TRUE, 100.00, 89.00, DATE '2021/5/21', 'open');
+INSERT INTO WorkPackage (WorkPackageID, ProjectID, ResponsibleEngineerID, WorkPackageName, Descrip, IsLowestLevel, Budget, InitialEstimate, DueAt, Stat, SortKey) VALUES ("WP1", "PR123", 2, "DDL Creation", "Make a ddl", TRUE, 100.00, 89.00, DATE '2021/5/21', 'open', "0001");
+INSERT INTO WorkPackage (WorkPackageID, ProjectID, ResponsibleEngineerID, WorkPackageName, Descrip, IsLowestLevel, Budget, InitialEstimate, DueAt, Stat, SortKey) VALUES ("WP2", "PR123", 1, "DDL Creation", "Make a ddl", TRUE, 100.00, 89.00, DATE '2021/5/21', 'open', "0002");
+INSERT INTO WorkPackage (WorkPackageID, ProjectID, ResponsibleEngineerID, WorkPackageName, Descrip, IsLowestLevel, Budget, InitialEstimate, DueAt, Stat, SortKey) VALUES ("WP3", "PR123", 1, "DDL Creation", "Make a ddl", TRUE, 100.00, 89.00, DATE '2021/5/21', 'open', "0003");
+INSERT INTO WorkPackage (WorkPackageID, ProjectID, ResponsibleEngineerID, WorkPackageName, Descrip, IsLowestLevel, Budget, InitialEstimate, DueAt, Stat, SortKey) VALUES ("WP4", "PR123", 2, "DDL Creation", "Make a ddl", TRUE, 100.00, 89.00, DATE '2021/5/21', 'open', "0004");
 
-INSERT INTO TimesheetRow (TimesheetID, ProjectID, WorkPackageID, Notes, Hours) VALUES ("45700000-0000-0000-0000-000000000000", "PR123", "WP1", "Sample notes", 1000);
+INSERT INTO TimesheetRow (TimesheetID, ProjectID, WorkPackageID, Notes, Hours, Charge) VALUES ("45700000-0000-0000-0000-000000000000", "PR123", "WP1", "Sample notes", 1000, 82.25);
+UPDATE Timesheet SET TotalDecihours = 235, DailyDecihours = 1000 WHERE TimesheetID = "45700000-0000-0000-0000-000000000000";
+INSERT INTO WorkPackageSequence (ProjectID, ParentWorkPackageID, LastChild) VALUES ("PR123", "", 4);
+INSERT INTO WorkPackageRollup (ProjectID, WorkPackageID, ChargeHours, Charge, EstimateAtCompletion) VALUES ("PR123", "WP1", 23.5, 82.25, 82.25);
 
 INSERT INTO ProjectEmployee VALUES("PR123", 1);
 INSERT INTO ProjectEmployee VALUES("PR123", 2);
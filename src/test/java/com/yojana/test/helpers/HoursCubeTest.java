@@ -0,0 +1,127 @@
+package com.yojana.test.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.yojana.helpers.PackedHoursHelper;
+import com.yojana.model.report.HoursCube;
+import com.yojana.model.report.HoursCube.Dimension;
+import com.yojana.model.timesheet.TimesheetRow;
+
+/**
+ * Checks HoursCube totals per dimension, with and without filters, against
+ * hand worked sums over a small cube, and the in place updates of apply.
+ */
+public class HoursCubeTest {
+
+    private static final LocalDate WEEK1 = LocalDate.of(2021, 5, 7);
+
+    private static final LocalDate WEEK2 = LocalDate.of(2021, 5, 14);
+
+    private HoursCube cube;
+
+    @BeforeEach
+    public void buildCube() {
+        cube = new HoursCube("PR123");
+        cube.put(1, "WP1.1", WEEK1, packed(0, 10, 2, 20));
+        cube.put(2, "WP1.2", WEEK1, packed(6, 40));
+        cube.put(1, "WP1.10", WEEK2, packed(1, 50));
+        cube.put(1, "WP2", WEEK2, packed(0, 60, 6, 5));
+        cube.put(3, "WP1.1", WEEK2, packed(3, 240));
+    }
+
+    @Test
+    public void testSumByEmployee() {
+        assertEquals(expected("1", 14.5f, "2", 4f, "3", 24f), cube.sum(Dimension.EMPLOYEE, null, null, null, null));
+    }
+
+    @Test
+    public void testSumByWorkPackageInWbsOrder() {
+        Map<String, Float> sums = cube.sum(Dimension.WORK_PACKAGE, null, null, null, null);
+        assertEquals(expected("WP1.1", 27f, "WP1.2", 4f, "WP1.10", 5f, "WP2", 6.5f), sums);
+        assertEquals("[WP1.1, WP1.2, WP1.10, WP2]", sums.keySet().toString());
+    }
+
+    @Test
+    public void testSumByWeek() {
+        assertEquals(expected(WEEK1.toString(), 7f, WEEK2.toString(), 35.5f),
+                cube.sum(Dimension.WEEK, null, null, null, null));
+    }
+
+    @Test
+    public void testSumByDay() {
+        Map<String, Float> sums = cube.sum(Dimension.DAY, null, null, null, null);
+        // every day of a week with matching cells, Saturday to Friday
+        assertEquals(expected("2021-05-01", 1f, "2021-05-02", 0f, "2021-05-03", 2f, "2021-05-04", 0f,
+                "2021-05-05", 0f, "2021-05-06", 0f, "2021-05-07", 4f,
+                "2021-05-08", 6f, "2021-05-09", 5f, "2021-05-10", 0f, "2021-05-11", 24f,
+                "2021-05-12", 0f, "2021-05-13", 0f, "2021-05-14", 0.5f), sums);
+        assertEquals(2 * TimesheetRow.DAYS_IN_WEEK, sums.size());
+    }
+
+    @Test
+    public void testSumOfAnEmployee() {
+        assertEquals(expected(WEEK1.toString(), 3f, WEEK2.toString(), 11.5f),
+                cube.sum(Dimension.WEEK, 1, null, null, null));
+        assertEquals(expected(), cube.sum(Dimension.WEEK, 99, null, null, null));
+    }
+
+    @Test
+    public void testSumOfAWorkPackageIncludesItsSubtree() {
+        assertEquals(expected("WP1.1", 27f, "WP1.2", 4f, "WP1.10", 5f),
+                cube.sum(Dimension.WORK_PACKAGE, null, "WP1", null, null));
+        // WP1.10 is not below WP1.1 even though its id starts the same
+        assertEquals(expected("1", 3f, "3", 24f), cube.sum(Dimension.EMPLOYEE, null, "WP1.1", null, null));
+    }
+
+    @Test
+    public void testSumBetweenWeeks() {
+        assertEquals(expected("1", 11.5f, "3", 24f), cube.sum(Dimension.EMPLOYEE, null, null, WEEK2, null));
+        assertEquals(expected("1", 3f, "2", 4f), cube.sum(Dimension.EMPLOYEE, null, null, null, WEEK1));
+        assertEquals(expected(), cube.sum(Dimension.EMPLOYEE, null, null, WEEK1.plusDays(1), WEEK2.minusDays(1)));
+    }
+
+    @Test
+    public void testApply() {
+        assertTrue(cube.apply(1, "WP1.1", WEEK1, packed(0, 10), packed(0, 30)));
+        assertEquals(expected(WEEK1.toString(), 9f, WEEK2.toString(), 35.5f),
+                cube.sum(Dimension.WEEK, null, null, null, null));
+
+        // a row for a new cell
+        assertTrue(cube.apply(4, "WP2", WEEK1, 0L, packed(5, 15)));
+        assertEquals(6, cube.size());
+        assertEquals(expected("WP2", 1.5f), cube.sum(Dimension.WORK_PACKAGE, 4, null, null, null));
+    }
+
+    @Test
+    public void testApplyBelowZeroLeavesTheCell() {
+        assertFalse(cube.apply(1, "WP1.1", WEEK1, packed(2, 50), 0L));
+        assertEquals(expected("WP1.1", 3f), cube.sum(Dimension.WORK_PACKAGE, null, "WP1.1", WEEK1, WEEK1));
+    }
+
+    /* packed decihours from day, decihours pairs */
+    private static long packed(int... dayHours) {
+        long packed = 0;
+        for (int i = 0; i < dayHours.length; i += 2) {
+            packed = PackedHoursHelper.setDecihour(packed, dayHours[i], dayHours[i + 1]);
+        }
+        return packed;
+    }
+
+    /* ordered map from key, hours pairs */
+    private static Map<String, Float> expected(Object... keyHours) {
+        Map<String, Float> expected = new LinkedHashMap<>();
+        for (int i = 0; i < keyHours.length; i += 2) {
+            expected.put((String) keyHours[i], (Float) keyHours[i + 1]);
+        }
+        return expected;
+    }
+}
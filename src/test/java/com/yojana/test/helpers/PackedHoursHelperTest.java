@@ -0,0 +1,186 @@
+package com.yojana.test.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.yojana.helpers.PackedHoursHelper;
+import com.yojana.model.timesheet.TimesheetRow;
+
+/**
+ * Checks PackedHoursHelper against the per-day loops TimesheetRow used
+ * before it, over weeks built from the edge values of a day and random
+ * weeks, including values with the top byte set and negative ones.
+ */
+public class PackedHoursHelperTest {
+
+    private static final long BYTE_BASE = 256;
+
+    private static final long[] MASK = { 0xFFL, 0xFF00L, 0xFF0000L, 0xFF000000L, 0xFF00000000L, 0xFF0000000000L,
+            0xFF000000000000L };
+
+    /** decihours around the limits of a day and of a byte */
+    private static final int[] EDGES = { 0, 1, 120, 239, 240, 241, 254, 255 };
+
+    private static final long TOP_BYTE = 0xFF00000000000000L;
+
+    private static List<Long> weeks;
+
+    @BeforeAll
+    public static void buildWeeks() {
+        weeks = new ArrayList<>();
+        // every day at every edge value, alone and with all other days at it too
+        for (int value: EDGES) {
+            long all = 0;
+            for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+                weeks.add((long) value << (d * Byte.SIZE));
+                all |= (long) value << (d * Byte.SIZE);
+            }
+            weeks.add(all);
+        }
+        Random random = new Random(4911L);
+        for (int i = 0; i < 2000; i++) {
+            long packed = 0;
+            for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+                packed |= (long) EDGES[random.nextInt(EDGES.length)] << (d * Byte.SIZE);
+            }
+            weeks.add(packed);
+        }
+        // the same weeks with a stray top byte, positive and negative
+        int count = weeks.size();
+        for (int i = 0; i < count; i++) {
+            weeks.add(weeks.get(i) | 0x0100000000000000L);
+            weeks.add(weeks.get(i) | TOP_BYTE);
+        }
+        weeks.add(-1L);
+        weeks.add(Long.MIN_VALUE);
+        weeks.add(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testGetDecihour() {
+        for (long packed: weeks) {
+            for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+                assertEquals(legacyGetDecihour(packed, d), PackedHoursHelper.getDecihour(packed, d), hex(packed));
+            }
+        }
+    }
+
+    @Test
+    public void testSetDecihour() {
+        for (long packed: weeks) {
+            for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+                for (int value: EDGES) {
+                    assertEquals(legacySetDecihour(packed, d, value), PackedHoursHelper.setDecihour(packed, d, value),
+                            hex(packed));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSum() {
+        for (long packed: weeks) {
+            assertEquals(legacySum(packed), PackedHoursHelper.sum(packed), hex(packed));
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        Random random = new Random(17L);
+        for (long a: weeks) {
+            long b = weeks.get(random.nextInt(weeks.size()));
+            assertEquals(legacyAdd(a, b), PackedHoursHelper.add(a, b), hex(a) + " + " + hex(b));
+            assertEquals(legacyAddExceeds(a, b), PackedHoursHelper.addExceeds(a, b), hex(a) + " + " + hex(b));
+        }
+    }
+
+    @Test
+    public void testExceeds() {
+        for (long packed: weeks) {
+            for (int limit: EDGES) {
+                assertEquals(legacyExceeds(packed, limit), PackedHoursHelper.exceeds(packed, limit),
+                        hex(packed) + " over " + limit);
+            }
+        }
+    }
+
+    @Test
+    public void testIsValid() {
+        for (long packed: weeks) {
+            assertEquals(legacyIsValid(packed), PackedHoursHelper.isValid(packed), hex(packed));
+        }
+    }
+
+    private static String hex(long packed) {
+        return Long.toHexString(packed);
+    }
+
+    /* TimesheetRow.getDecihour before the helper */
+    private static int legacyGetDecihour(long packed, int d) {
+        return (int) ((packed & MASK[d]) >> d * Byte.SIZE);
+    }
+
+    /* TimesheetRow.setDecihour before the helper */
+    private static long legacySetDecihour(long packed, int d, int charge) {
+        return packed & ~MASK[d] | (long) charge << (d * Byte.SIZE);
+    }
+
+    /* TimesheetRow.getDeciSum before the helper, by day so negative weeks are read as bytes */
+    private static int legacySum(long packed) {
+        int sum = 0;
+        for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+            sum += legacyGetDecihour(packed, d);
+        }
+        return sum;
+    }
+
+    /* day by day sum capped at a day's worth, as the per-day loop did */
+    private static long legacyAdd(long a, long b) {
+        long result = 0;
+        for (int d = TimesheetRow.LAST_DAY; d >= TimesheetRow.FIRST_DAY; d--) {
+            int sum = legacyGetDecihour(a, d) + legacyGetDecihour(b, d);
+            result = result * BYTE_BASE + Math.min(sum, TimesheetRow.DECIHOURS_IN_DAY);
+        }
+        return result;
+    }
+
+    private static boolean legacyAddExceeds(long a, long b) {
+        for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+            if (legacyGetDecihour(a, d) + legacyGetDecihour(b, d) > TimesheetRow.DECIHOURS_IN_DAY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean legacyExceeds(long packed, int limit) {
+        for (int d = TimesheetRow.FIRST_DAY; d <= TimesheetRow.LAST_DAY; d++) {
+            if (legacyGetDecihour(packed, d) > limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* TimesheetRow.checkHoursForWeek before the helper */
+    private static boolean legacyIsValid(long packed) {
+        if (packed < 0) {
+            return false;
+        }
+        long check = packed;
+        for (int i = TimesheetRow.FIRST_DAY; i <= TimesheetRow.LAST_DAY; i++) {
+            if (check % BYTE_BASE > TimesheetRow.DECIHOURS_IN_DAY) {
+                return false;
+            }
+            check /= BYTE_BASE;
+        }
+        // top byte must be zero
+        return check == 0;
+    }
+}
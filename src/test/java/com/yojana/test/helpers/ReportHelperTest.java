@@ -0,0 +1,103 @@
+package com.yojana.test.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.yojana.helpers.ReportHelper;
+import com.yojana.model.report.WorkPackageReport;
+
+/**
+ * Checks that ReportHelper.aggregate rolls every work package up into all
+ * of its ancestors exactly once, whatever order the lines come in.
+ */
+public class ReportHelperTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testAggregateMultiLevelTree() {
+        Map<String, WorkPackageReport> report = new LinkedHashMap<>();
+        // children before their parents, so a single pass in map order would miss them
+        put(report, "WP1.1.2", "WP1.1", 2, 8);
+        put(report, "WP1.1.1", "WP1.1", 2, 4);
+        put(report, "WP2", null, 0, 32);
+        put(report, "WP1.2", "WP1", 1, 16);
+        put(report, "WP1.1", "WP1", 1, 2);
+        put(report, "WP1", null, 0, 1);
+
+        ReportHelper.aggregate(report);
+
+        assertTotals(report, "WP1.1.1", 4);
+        assertTotals(report, "WP1.1.2", 8);
+        assertTotals(report, "WP1.1", 2 + 4 + 8);
+        assertTotals(report, "WP1.2", 16);
+        assertTotals(report, "WP1", 1 + 2 + 4 + 8 + 16);
+        assertTotals(report, "WP2", 32);
+    }
+
+    @Test
+    public void testAggregateDeepChain() {
+        Map<String, WorkPackageReport> report = new LinkedHashMap<>();
+        String id = "WP1";
+        put(report, id, null, 0, 1);
+        final int depth = 50;
+        for (int level = 1; level < depth; level++) {
+            String child = id + ".1";
+            put(report, child, id, level, 1);
+            id = child;
+        }
+
+        ReportHelper.aggregate(report);
+
+        // every level counts itself and each level below it
+        id = "WP1";
+        for (int level = 0; level < depth; level++) {
+            assertTotals(report, id, depth - level);
+            id = id + ".1";
+        }
+    }
+
+    @Test
+    public void testAggregateMissingParentIsARoot() {
+        Map<String, WorkPackageReport> report = new LinkedHashMap<>();
+        put(report, "WP3.1", "WP3", 1, 5);
+        put(report, "WP3.1.1", "WP3.1", 2, 7);
+
+        ReportHelper.aggregate(report);
+
+        assertTotals(report, "WP3.1", 12);
+        assertTotals(report, "WP3.1.1", 7);
+    }
+
+    @Test
+    public void testAggregateEmptyReport() {
+        Map<String, WorkPackageReport> report = new LinkedHashMap<>();
+        ReportHelper.aggregate(report);
+        assertEquals(0, report.size());
+    }
+
+    /* a line whose own hours are value and other totals multiples of it, so mixed up fields show */
+    private static void put(Map<String, WorkPackageReport> report, String id, String parentId, int level,
+            double value) {
+        WorkPackageReport line = new WorkPackageReport(id, parentId, level);
+        line.setHours(value);
+        line.setCharge(value * 10);
+        line.setPlanned(value * 100);
+        line.setCostToComplete(value * 1000);
+        line.setCostAtCompletion(value * 10000);
+        report.put(id, line);
+    }
+
+    private static void assertTotals(Map<String, WorkPackageReport> report, String id, double value) {
+        WorkPackageReport line = report.get(id);
+        assertEquals(value, line.getHours(), DELTA, id + " hours");
+        assertEquals(value * 10, line.getCharge(), DELTA, id + " charge");
+        assertEquals(value * 100, line.getPlanned(), DELTA, id + " planned");
+        assertEquals(value * 1000, line.getCostToComplete(), DELTA, id + " cost to complete");
+        assertEquals(value * 10000, line.getCostAtCompletion(), DELTA, id + " cost at completion");
+    }
+}
@@ -0,0 +1,73 @@
+package com.yojana.test.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.yojana.model.timesheet.TimesheetCursor;
+
+/**
+ * Checks that a TimesheetCursor survives the trip through its opaque form
+ * and that anything else handed back by a client is rejected.
+ */
+public class TimesheetCursorTest {
+
+    private static final LocalDate END_WEEK = LocalDate.of(2021, 5, 7);
+
+    private static final UUID ID = UUID.fromString("8f14e45f-ceea-467f-a9f4-2b1c3e5d7a90");
+
+    @Test
+    public void testRoundTrip() {
+        TimesheetCursor cursor = TimesheetCursor.decode(new TimesheetCursor(END_WEEK, ID).encode());
+        assertEquals(END_WEEK, cursor.getEndWeek());
+        assertEquals(ID, cursor.getId());
+    }
+
+    @Test
+    public void testRoundTripRandomIds() {
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            LocalDate endWeek = END_WEEK.plusWeeks(i);
+            TimesheetCursor cursor = TimesheetCursor.decode(new TimesheetCursor(endWeek, id).encode());
+            assertEquals(endWeek, cursor.getEndWeek());
+            assertEquals(id, cursor.getId());
+        }
+    }
+
+    @Test
+    public void testEncodeIsUrlSafe() {
+        for (int i = 0; i < 100; i++) {
+            String encoded = new TimesheetCursor(END_WEEK.plusWeeks(i), UUID.randomUUID()).encode();
+            assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+        }
+    }
+
+    @Test
+    public void testDecodeMalformed() {
+        assertMalformed(null);
+        assertMalformed("");
+        assertMalformed("not a cursor!");
+        assertMalformed(encode(END_WEEK + ID.toString()));
+        assertMalformed(encode("2021-13-07|" + ID));
+        assertMalformed(encode(END_WEEK + "|not-a-uuid"));
+        assertMalformed(encode("|" + ID));
+        assertMalformed(encode(END_WEEK + "|"));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertMalformed(String cursor) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TimesheetCursor.decode(cursor), cursor);
+        assertEquals("Malformed cursor", e.getMessage());
+    }
+}
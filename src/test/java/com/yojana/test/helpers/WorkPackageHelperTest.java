@@ -0,0 +1,197 @@
+package com.yojana.test.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.yojana.helpers.WorkPackageHelper;
+import com.yojana.model.project.WorkPackage;
+import com.yojana.model.project.WorkPackageImport;
+import com.yojana.model.project.WorkPackageStatus;
+
+/**
+ * Checks the id arithmetic of WorkPackageHelper: sort keys and their limits,
+ * ancestor ids, and turning an imported CSV into work packages.
+ */
+public class WorkPackageHelperTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testSortKey() {
+        assertEquals("0001", WorkPackageHelper.getSortKey("WP1"));
+        assertEquals("0001000a0002", WorkPackageHelper.getSortKey("WP1.10.2"));
+        assertEquals("ffff", WorkPackageHelper.getSortKey("WP" + WorkPackageHelper.MAX_NUMBER));
+    }
+
+    @Test
+    public void testSortKeyOrderIsWbsOrder() {
+        List<String> wbs = Arrays.asList("WP1", "WP1.1", "WP1.1.1", "WP1.2", "WP1.10", "WP2", "WP10", "WP10.1");
+        List<String> shuffled = new ArrayList<String>(wbs);
+        Collections.reverse(shuffled);
+        shuffled.sort((a, b) -> WorkPackageHelper.getSortKey(a).compareTo(WorkPackageHelper.getSortKey(b)));
+        assertEquals(wbs, shuffled);
+    }
+
+    @Test
+    public void testSortKeyNumberAboveMax() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> WorkPackageHelper.getSortKey("WP1." + (WorkPackageHelper.MAX_NUMBER + 1)));
+        assertEquals("WP1.65536 has a number above 65535", e.getMessage());
+        // a number too long for an int must not wrap around either
+        assertThrows(IllegalArgumentException.class, () -> WorkPackageHelper.getSortKey("WP99999999999"));
+    }
+
+    @Test
+    public void testSortKeyDepth() {
+        String deepest = chain(WorkPackageHelper.MAX_HIERARCHY_LEVEL);
+        assertEquals(WorkPackageHelper.MAX_HIERARCHY_LEVEL, WorkPackageHelper.getHierarchyLevel(deepest));
+        assertEquals("0001000100010001000100010001000100010001", WorkPackageHelper.getSortKey(deepest));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> WorkPackageHelper.getSortKey(deepest + ".1"));
+        assertEquals(deepest + ".1 is deeper than 9 levels", e.getMessage());
+    }
+
+    @Test
+    public void testPathIds() {
+        assertEquals(Arrays.asList("WP1.2.3", "WP1.2", "WP1"), WorkPackageHelper.getPathIds("WP1.2.3"));
+        assertEquals(Arrays.asList("WP1"), WorkPackageHelper.getPathIds("WP1"));
+        assertEquals(Arrays.asList("WP1.10", "WP1"), WorkPackageHelper.getPathIds("WP1.10"));
+    }
+
+    @Test
+    public void testParseImportCsv() {
+        List<WorkPackageImport> roots = WorkPackageHelper.parseImportCsv(
+                "path,name,budget,initialEstimate,responsibleEngineerId,description\r\n"
+                + "1,Design,10,12,7,covers UI, API and schema\r\n"
+                + "\r\n"
+                + "1.1,UI,,\r\n"
+                + "1.2,API,4.5,3\r\n"
+                + "2,Build\r\n");
+
+        assertEquals(2, roots.size());
+        WorkPackageImport design = roots.get(0);
+        assertEquals("Design", design.getWorkPackageName());
+        assertEquals(10.0, design.getBudget(), DELTA);
+        assertEquals(12.0, design.getInitialEstimate(), DELTA);
+        assertEquals(Integer.valueOf(7), design.getResponsibleEngineerId());
+        assertEquals("covers UI, API and schema", design.getDescription());
+        assertEquals(2, design.getChildren().size());
+        assertEquals("UI", design.getChildren().get(0).getWorkPackageName());
+        assertEquals(null, design.getChildren().get(0).getBudget());
+        assertEquals(4.5, design.getChildren().get(1).getBudget(), DELTA);
+        assertEquals("Build", roots.get(1).getWorkPackageName());
+        assertTrue(roots.get(1).getChildren().isEmpty());
+    }
+
+    @Test
+    public void testParseImportCsvErrors() {
+        assertCsvError("1,Design\n1.1.1,Mockups", "Line 2: parent of 1.1.1 is not listed before it");
+        assertCsvError("1,Design\n1,Build", "Line 2: path 1 is listed twice");
+        assertCsvError("1,Design,ten", "Line 1: ");
+        assertCsvError("1,Design,10,12,seven", "Line 1: ");
+        assertCsvError("1", "Line 1: ");
+    }
+
+    @Test
+    public void testFlattenImport() {
+        WorkPackageImport design = node("Design", 1.0, 2.0);
+        WorkPackageImport ui = node("UI", 3.0, 4.0);
+        ui.getChildren().add(node("Mockups", 5.0, 6.0));
+        ui.getChildren().add(node("Review", null, null));
+        design.getChildren().add(ui);
+        design.getChildren().add(node("API", 7.0, 8.0));
+
+        List<WorkPackage> wps = WorkPackageHelper.flattenImport("PR1", Arrays.asList(design, node("Build", 9.0, 10.0)), 3);
+
+        // parents before their children, so they can be persisted in order
+        String[] ids = { "WP3", "WP3.1", "WP3.1.1", "WP3.1.2", "WP3.2", "WP4" };
+        String[] parents = { null, "WP3", "WP3.1", "WP3.1", "WP3", null };
+        int[] levels = { 0, 1, 2, 2, 1, 0 };
+        boolean[] lowest = { false, false, true, true, true, true };
+        assertEquals(ids.length, wps.size());
+        for (int i = 0; i < ids.length; i++) {
+            WorkPackage wp = wps.get(i);
+            assertEquals(ids[i], wp.getWorkPackagePk().getId());
+            assertEquals("PR1", wp.getWorkPackagePk().getProjectID());
+            assertEquals(parents[i], wp.getParentWPId(), ids[i]);
+            assertEquals(levels[i], wp.getHierarchyLevel(), ids[i]);
+            assertEquals(lowest[i], wp.getIsLowestLevel(), ids[i]);
+            assertEquals(WorkPackageStatus.open, wp.getStatus(), ids[i]);
+        }
+
+        // allocations are the sums over the direct children
+        assertAllocated(wps.get(0), 3.0 + 7.0, 4.0 + 8.0);
+        assertAllocated(wps.get(1), 5.0 + 0.0, 6.0 + 0.0);
+        assertAllocated(wps.get(2), 0.0, 0.0);
+        assertEquals(0.0, wps.get(3).getBudget(), DELTA);
+        assertEquals(0.0, wps.get(3).getInitialEstimate(), DELTA);
+    }
+
+    @Test
+    public void testCheckImport() {
+        WorkPackageHelper.checkImport(Arrays.asList(importChain(WorkPackageHelper.MAX_HIERARCHY_LEVEL)));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> WorkPackageHelper
+                .checkImport(Arrays.asList(importChain(WorkPackageHelper.MAX_HIERARCHY_LEVEL + 1))));
+        assertEquals("work packages deeper than 9 levels", e.getMessage());
+
+        WorkPackageImport wide = node("Wide", null, null);
+        for (int i = 0; i < WorkPackageHelper.MAX_NUMBER; i++) {
+            wide.getChildren().add(node("Leaf", null, null));
+        }
+        WorkPackageHelper.checkImport(Arrays.asList(wide));
+        wide.getChildren().add(node("Leaf", null, null));
+        e = assertThrows(IllegalArgumentException.class, () -> WorkPackageHelper.checkImport(Arrays.asList(wide)));
+        assertEquals("more than 65535 work packages on level 1", e.getMessage());
+    }
+
+    /* WP1.1...1 at the given hierarchy level */
+    private static String chain(int hierarchyLevel) {
+        StringBuilder id = new StringBuilder("WP1");
+        for (int i = 0; i < hierarchyLevel; i++) {
+            id.append(".1");
+        }
+        return id.toString();
+    }
+
+    /* a root with one child per level down to the given hierarchy level */
+    private static WorkPackageImport importChain(int hierarchyLevel) {
+        WorkPackageImport root = node("Level 0", null, null);
+        WorkPackageImport parent = root;
+        for (int i = 1; i <= hierarchyLevel; i++) {
+            WorkPackageImport child = node("Level " + i, null, null);
+            parent.getChildren().add(child);
+            parent = child;
+        }
+        return root;
+    }
+
+    private static WorkPackageImport node(String name, Double budget, Double initialEstimate) {
+        WorkPackageImport node = new WorkPackageImport();
+        node.setWorkPackageName(name);
+        node.setBudget(budget);
+        node.setInitialEstimate(initialEstimate);
+        return node;
+    }
+
+    private static void assertAllocated(WorkPackage wp, double budget, double initialEstimate) {
+        String id = wp.getWorkPackagePk().getId();
+        assertEquals(budget, wp.getAllocatedBudget(), DELTA, id + " allocated budget");
+        assertEquals(initialEstimate, wp.getAllocatedInitialEstimate(), DELTA, id + " allocated initial estimate");
+    }
+
+    private static void assertCsvError(String csv, String messageStart) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> WorkPackageHelper.parseImportCsv(csv));
+        assertTrue(e.getMessage().startsWith(messageStart), e.getMessage());
+    }
+}